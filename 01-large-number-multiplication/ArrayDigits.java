@@ -0,0 +1,54 @@
+/**
+ * DigitStorage backed by an int[] on the heap. The garbage collector frees it,
+ * so close() does nothing.
+ */
+public class ArrayDigits implements DigitStorage {
+
+    /** The digits, most significant first */
+    private final int[] digits;
+
+    /** Wraps digits without copying them */
+    public ArrayDigits(final int[] digits) {
+        this.digits = digits;
+    } // wrapping constructor
+
+    /** Allocates length digits, all 0 */
+    public ArrayDigits(final int length) {
+        this(new int[length]);
+    } // allocating constructor
+
+    /** Returns the array behind this storage, not a copy */
+    public int[] array() {
+        return this.digits;
+    } // method array
+
+    @Override
+    public long length() {
+        return this.digits.length;
+    } // method length
+
+    @Override
+    public int get(final long index) {
+        return this.digits[Math.toIntExact(index)];
+    } // method get
+
+    @Override
+    public void set(final long index, final int digit) {
+        this.digits[Math.toIntExact(index)] = digit;
+    } // method set
+
+    @Override
+    public void read(final long from, int[] dst, final int dstOffset, final int count) {
+        System.arraycopy(this.digits, Math.toIntExact(from), dst, dstOffset, count);
+    } // method read
+
+    @Override
+    public void write(final int[] src, final int srcOffset, final long to, final int count) {
+        System.arraycopy(src, srcOffset, this.digits, Math.toIntExact(to), count);
+    } // method write
+
+    @Override
+    public void close() {
+    } // method close
+
+} // class ArrayDigits
@@ -0,0 +1,199 @@
+import java.util.Arrays; // for sort(), copyOfRange() and deepEquals() only
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Many independent products at once: xs[i] * ys[i] for every i, spread over
+ * the cores of a fork/join pool.
+ *
+ * A loop over multiply runs on one core and allocates the temporary arrays of
+ * every product anew. Here one worker per core takes products from a shared
+ * queue, largest first, and runs each through the allocation-free
+ * multiplyInto of GradeSchoolMultiplication_Solution with a workspace and a
+ * product buffer of its own. The only array a product allocates is its result.
+ *
+ * Taking the largest products first is the classic longest-processing-time
+ * rule: the small products at the end of the queue fill the gaps between
+ * workers, so no worker is left with a large product when the others are
+ * done. It also means a worker's buffers reach their final size on its first
+ * product. The cost of a product is estimated as the product of the operand
+ * lengths, which orders them correctly whatever method multiplies them.
+ */
+public class BatchMultiplication {
+
+    /**
+     * Multiplies xs[i] by ys[i] for every i in the common fork/join pool.
+     *
+     * @param xs   the first operand of each product
+     * @param ys   the second operand of each product
+     * @param base the number base of the system
+     * @return the products in the order of the operands, each without its
+     *         leading zero like multiply returns it
+     * @throws IllegalArgumentException if xs and ys differ in length
+     */
+    public static int[][] multiplyAll(final int[][] xs, final int[][] ys, final int base) {
+        return multiplyAll(xs, ys, base, ForkJoinPool.commonPool());
+    } // method multiplyAll
+
+    /**
+     * Multiplies xs[i] by ys[i] for every i in the given pool, with one worker
+     * per thread of its parallelism.
+     *
+     * @param xs   the first operand of each product
+     * @param ys   the second operand of each product
+     * @param base the number base of the system
+     * @param pool the pool to run the workers in
+     * @return the products in the order of the operands, each without its
+     *         leading zero like multiply returns it
+     * @throws IllegalArgumentException if xs and ys differ in length
+     */
+    public static int[][] multiplyAll(final int[][] xs, final int[][] ys, final int base,
+            final ForkJoinPool pool) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException(xs.length + " first operands but " + ys.length + " second operands");
+        }
+        int[][] products = new int[xs.length][];
+        int[] order = largestFirst(xs, ys);
+        int workers = Math.min(pool.getParallelism(), xs.length);
+        if (workers <= 1) {
+            // Not worth a task, but the single workspace still saves allocations
+            new Worker(xs, ys, base, order, new AtomicInteger(), products).compute();
+        } else {
+            pool.invoke(new Batch(xs, ys, base, order, products, workers));
+        }
+        return products;
+    } // method multiplyAll
+
+    /**
+     * Returns the indices of the products, the one with the largest product of
+     * operand lengths first.
+     */
+    private static int[] largestFirst(final int[][] xs, final int[][] ys) {
+        // Sort costs with their indices in the low 31 bits; the cost gets 32
+        // bits, which keeps the key positive, and saturates beyond them
+        long[] keys = new long[xs.length];
+        for (int i = 0; i < keys.length; i++) {
+            long cost = Math.min((long) xs[i].length * ys[i].length, (1L << 32) - 1);
+            keys[i] = cost << 31 | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[keys.length];
+        for (int k = 0; k < order.length; k++) {
+            order[k] = (int) (keys[keys.length - 1 - k] & Integer.MAX_VALUE);
+        }
+        return order;
+    } // method largestFirst
+
+    /** Starts the workers and waits for them */
+    @SuppressWarnings("serial")
+    private static class Batch extends RecursiveAction {
+        private final Worker[] workers;
+
+        Batch(final int[][] xs, final int[][] ys, final int base, final int[] order, int[][] products,
+                final int count) {
+            AtomicInteger next = new AtomicInteger();
+            this.workers = new Worker[count];
+            for (int w = 0; w < count; w++) {
+                this.workers[w] = new Worker(xs, ys, base, order, next, products);
+            }
+        } // constructor
+
+        @Override
+        protected void compute() {
+            invokeAll(this.workers);
+        } // method compute
+    } // class Batch
+
+    /**
+     * Takes products from the queue until it is empty. Each worker has its own
+     * workspace and product buffer, reused from product to product.
+     */
+    @SuppressWarnings("serial")
+    private static class Worker extends RecursiveAction {
+        private final int[][] xs;
+        private final int[][] ys;
+        private final int base;
+        private final int[] order;
+        /** Position in order of the next product to take, shared by all workers */
+        private final AtomicInteger next;
+        private final int[][] products;
+
+        Worker(final int[][] xs, final int[][] ys, final int base, final int[] order, final AtomicInteger next,
+                int[][] products) {
+            this.xs = xs;
+            this.ys = ys;
+            this.base = base;
+            this.order = order;
+            this.next = next;
+            this.products = products;
+        } // constructor
+
+        @Override
+        protected void compute() {
+            MultiplicationWorkspace workspace = new MultiplicationWorkspace();
+            int[] buffer = new int[0];
+            for (int k = this.next.getAndIncrement(); k < this.order.length; k = this.next.getAndIncrement()) {
+                int i = this.order[k];
+                int[] x = this.xs[i];
+                int[] y = this.ys[i];
+                int[] product;
+                if (x.length == 0 || y.length == 0) {
+                    product = new int[1];
+                } else {
+                    int length = x.length + y.length;
+                    if (buffer.length < length) {
+                        buffer = new int[length];
+                    }
+                    GradeSchoolMultiplication_Solution.multiplyInto(x, y, this.base, buffer, workspace);
+                    // Copy out all but a leading zero, the same digits multiply returns
+                    int zero = (buffer[0] == 0) ? 1 : 0;
+                    product = Arrays.copyOfRange(buffer, zero, length);
+                }
+                this.products[i] = product;
+            }
+        } // method compute
+    } // class Worker
+
+    /** Demo: 4000 products of 200 to 2000 digits, in a loop and as a batch */
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        int base = 10;
+        int count = 4000;
+        int[][] xs = new int[count][];
+        int[][] ys = new int[count][];
+        for (int i = 0; i < count; i++) {
+            xs[i] = new int[200 + random.nextInt(1800)];
+            ys[i] = new int[200 + random.nextInt(1800)];
+            for (int k = 0; k < xs[i].length; k++) {
+                xs[i][k] = random.nextInt(base);
+            }
+            for (int k = 0; k < ys[i].length; k++) {
+                ys[i][k] = random.nextInt(base);
+            }
+            xs[i][0] = 1 + random.nextInt(base - 1);
+        }
+        int[][] looped = new int[count][];
+        int[][] batched = null;
+        // The first pass warms up the JIT
+        for (int pass = 0; pass < 2; pass++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                looped[i] = GradeSchoolMultiplication_Solution.multiply(xs[i], ys[i], base);
+            }
+            double loop = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            batched = multiplyAll(xs, ys, base);
+            double batch = (System.nanoTime() - start) / 1e6;
+            if (pass == 1) {
+                System.out.printf("%d products on %d cores: loop %.0f ms, multiplyAll %.0f ms%n", count,
+                        Runtime.getRuntime().availableProcessors(), loop, batch);
+            }
+        }
+        if (!Arrays.deepEquals(looped, batched)) {
+            throw new IllegalStateException("Batch products differ");
+        }
+    } // method main
+
+} // class BatchMultiplication
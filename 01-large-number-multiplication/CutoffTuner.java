@@ -0,0 +1,385 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Measures the crossovers between the multiplication tiers on this machine and
+ * keeps them in a small file, so the dispatcher uses cutoffs that suit the
+ * hardware it runs on.
+ *
+ * A cutoff is the operand length from which a tier beats the tiers below it.
+ * To find it the tuner times the dispatcher at length n twice. The first time
+ * the tier's cutoff is n, so the tier splits the top level. The second time it
+ * is n + 1, so it does not. Below the top level both runs are the same, so the
+ * difference is exactly one level of the tier. The cutoff is the first n on a
+ * geometric grid from which the tier wins twice in a row. Karatsuba is tuned
+ * first with the tiers above it switched off, then Toom-3 on top of it, then
+ * the NTT. The parallel threshold is only tuned on machines with more than one
+ * core.
+ *
+ * The file holds one set of cutoffs per machine. A machine is identified by its
+ * CPU model and the JVM's name and version, because either can move a
+ * crossover. GradeSchoolMultiplication_Solution applies the set for this
+ * machine when it is first used. If there is none and the system property
+ * cutoffs.autotune is true, it tunes and saves a set first. Otherwise run
+ * this class to tune on request. The file is ~/.large-number-cutoffs.properties
+ * unless the system property cutoffs.file names another.
+ */
+public class CutoffTuner {
+
+    // ------------------------------ CONSTANTS ---------------------------------
+
+    /** System property that names the cutoffs file */
+    public static final String FILE_PROPERTY = "cutoffs.file";
+
+    /** System property that makes the first use tune when nothing is saved */
+    public static final String AUTOTUNE_PROPERTY = "cutoffs.autotune";
+
+    /** File name in the home directory when FILE_PROPERTY is not set */
+    private static final String DEFAULT_FILE = ".large-number-cutoffs.properties";
+
+    /** Base the crossovers are measured in */
+    public static final int DEFAULT_BASE = 10;
+
+    /** Ratio between consecutive lengths on the tuning grid */
+    private static final double GRID_STEP = 1.2;
+
+    /** Nanoseconds of calls per timing sample, and samples of each setting */
+    private static final long SAMPLE_NANOS = 20_000_000L;
+    private static final int SAMPLES = 3;
+
+    /** Nanoseconds of untimed calls before the first measurement */
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+
+    /** Tier names, also the suffixes of the keys in the file */
+    private static final String KARATSUBA = "karatsuba";
+    private static final String TOOM = "toom3";
+    private static final String NTT = "ntt";
+    private static final String PARALLEL = "parallel";
+    private static final List<String> TIERS = List.of(KARATSUBA, TOOM, NTT, PARALLEL);
+
+    /** Sink for results, so the JIT cannot drop the timed calls */
+    private static volatile int[] blackhole;
+
+    /** True once applyOnFirstUse has run, whatever its outcome */
+    private static volatile boolean applied;
+
+    /** True while applyOnFirstUse runs, so the tuning it starts does not recurse */
+    private static boolean applying;
+
+    /**
+     * Applies the saved cutoffs for this machine, after tuning and saving them
+     * first if there are none and autotuning is on. The dispatchers in
+     * GradeSchoolMultiplication_Solution call this on every product, and only
+     * the first call does anything. Other threads that multiply meanwhile wait
+     * for it, so none runs with half-applied cutoffs. A missing, unreadable or
+     * malformed file leaves the defaults in place, since multiplying should not
+     * fail over it.
+     */
+    static void applyOnFirstUse() {
+        if (!applied) {
+            synchronized (CutoffTuner.class) {
+                if (!applied && !applying) {
+                    applying = true;
+                    try {
+                        if (!load() && Boolean.getBoolean(AUTOTUNE_PROPERTY)) {
+                            // Fork/join workers would wait for this lock, so the
+                            // parallel threshold keeps its default here
+                            tune(DEFAULT_BASE, false);
+                            save();
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        // Keep the default cutoffs
+                    } finally {
+                        applying = false;
+                        applied = true;
+                    }
+                }
+            }
+        }
+    } // method applyOnFirstUse
+
+    /**
+     * Applies the cutoffs saved for this machine.
+     *
+     * @return true if the file had cutoffs for this machine
+     * @throws IOException if the file exists but cannot be read or parsed
+     */
+    public static boolean load() throws IOException {
+        Properties saved = readFile();
+        String key = machineKey();
+        boolean found = false;
+        for (String tier : TIERS) {
+            String value = saved.getProperty(key + "." + tier);
+            if (value != null) {
+                try {
+                    setCutoff(tier, Integer.parseInt(value.trim()));
+                    found = true;
+                } catch (IllegalArgumentException e) {
+                    // A value the setter rejects, or not a number: keep the current one
+                }
+            }
+        }
+        return found;
+    } // method load
+
+    /**
+     * Saves the current cutoffs as this machine's set, keeping the other
+     * machines' sets in the file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public static void save() throws IOException {
+        Properties saved = readFile();
+        String key = machineKey();
+        for (String tier : TIERS) {
+            saved.setProperty(key + "." + tier, Integer.toString(getCutoff(tier)));
+        }
+        Path file = file();
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            saved.store(writer, "Multiplication cutoffs by machine, written by CutoffTuner");
+        }
+    } // method save
+
+    /**
+     * Measures every crossover on this machine and applies the results. Takes a
+     * few seconds.
+     *
+     * The cutoffs are global, and tuning moves them through the whole grid and
+     * switches the upper tiers off while it measures. Run it while nothing else
+     * in the JVM multiplies: other products still come out right, since every
+     * call reads the cutoffs it needs once, but they run with detuned cutoffs,
+     * and their timings skew the measurements.
+     *
+     * @param base the number base to measure in
+     */
+    public static void tune(final int base) {
+        tune(base, true);
+    } // method tune
+
+    /** Measures the crossovers, the parallel one only if asked to and useful */
+    private static void tune(final int base, final boolean parallel) {
+        // Apply the saved set now, or the first product timed would apply it
+        // in the middle of the measurements
+        applyOnFirstUse();
+        int karatsuba = KaratsubaMultiplication.getCutoff();
+        int toom = ToomCookMultiplication.getCutoff();
+        int ntt = NttMultiplication.getCutoff();
+        int threshold = ParallelMultiplication.getThreshold();
+        warmUp(base);
+        try {
+            // Switch the upper tiers off while the lower ones are measured
+            ToomCookMultiplication.setCutoff(Integer.MAX_VALUE);
+            NttMultiplication.setCutoff(Integer.MAX_VALUE);
+            karatsuba = crossover(KARATSUBA, 8, 512, base);
+            KaratsubaMultiplication.setCutoff(karatsuba);
+            toom = crossover(TOOM, Math.max(6, karatsuba), 8192, base);
+            ToomCookMultiplication.setCutoff(toom);
+            ntt = crossover(NTT, 16, 8192, base);
+            NttMultiplication.setCutoff(ntt);
+            threshold = Math.max(threshold, karatsuba);
+            if (parallel && Runtime.getRuntime().availableProcessors() > 1) {
+                threshold = crossover(PARALLEL, Math.max(1024, karatsuba), 1 << 18, base);
+            }
+        } finally {
+            KaratsubaMultiplication.setCutoff(karatsuba);
+            ToomCookMultiplication.setCutoff(toom);
+            NttMultiplication.setCutoff(ntt);
+            ParallelMultiplication.setThreshold(threshold);
+        }
+    } // method tune
+
+    /**
+     * Returns the first length on the grid from low to high where the tier wins
+     * at that length and the next one, or high if it never does.
+     */
+    private static int crossover(final String tier, final int low, final int high, final int base) {
+        int result = high;
+        boolean wonLast = false;
+        int firstWin = high;
+        for (double length = low; length <= high && result == high; length *= GRID_STEP) {
+            int n = (int) length;
+            Random random = new Random(n);
+            int[] x = new int[n];
+            int[] y = new int[n];
+            for (int k = 0; k < n; k++) {
+                x[k] = random.nextInt(base);
+                y[k] = random.nextInt(base);
+            }
+            // Alternate the two settings so drift in the machine hits both alike;
+            // the first round only warms up
+            long with = Long.MAX_VALUE;
+            long without = Long.MAX_VALUE;
+            for (int sample = 0; sample <= SAMPLES; sample++) {
+                setCutoff(tier, n);
+                long withSample = time(tier, x, y, base);
+                setCutoff(tier, n + 1);
+                long withoutSample = time(tier, x, y, base);
+                if (sample > 0) {
+                    with = Math.min(with, withSample);
+                    without = Math.min(without, withoutSample);
+                }
+            }
+            boolean won = with < without;
+            if (won && wonLast) {
+                result = firstWin;
+            } else if (won) {
+                firstWin = n;
+            }
+            wonLast = won;
+        }
+        return result;
+    } // method crossover
+
+    /** Returns the time per call over one sample */
+    private static long time(final String tier, final int[] x, final int[] y, final int base) {
+        int calls = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            blackhole = tier.equals(PARALLEL)
+                    ? ParallelMultiplication.multiply(x, y, base)
+                    : GradeSchoolMultiplication_Solution.multiplyUntrimmed(x, y, base);
+            calls++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < SAMPLE_NANOS);
+        return elapsed / calls;
+    } // method time
+
+    /**
+     * Runs every tier for a while before anything is timed, so the JIT has
+     * compiled the kernels and the first grid points are not measured cold.
+     */
+    private static void warmUp(final int base) {
+        Random random = new Random(base);
+        long end = System.nanoTime() + WARMUP_NANOS;
+        for (int n = 8; System.nanoTime() < end; n = (n < 4096) ? 2 * n : 8) {
+            int[] x = new int[n];
+            int[] y = new int[n];
+            for (int k = 0; k < n; k++) {
+                x[k] = random.nextInt(base);
+                y[k] = random.nextInt(base);
+            }
+            blackhole = GradeSchoolMultiplication_Solution.columnWise(x, y, base);
+            blackhole = KaratsubaMultiplication.multiply(x, y, base);
+            blackhole = ToomCookMultiplication.multiply(x, y, base);
+            if (NttMultiplication.supports(n, n, base)) {
+                blackhole = NttMultiplication.multiply(x, y, base);
+            }
+        }
+    } // method warmUp
+
+    /** Returns the current cutoff of a tier */
+    private static int getCutoff(final String tier) {
+        int cutoff;
+        if (tier.equals(KARATSUBA)) {
+            cutoff = KaratsubaMultiplication.getCutoff();
+        } else if (tier.equals(TOOM)) {
+            cutoff = ToomCookMultiplication.getCutoff();
+        } else if (tier.equals(NTT)) {
+            cutoff = NttMultiplication.getCutoff();
+        } else {
+            cutoff = ParallelMultiplication.getThreshold();
+        }
+        return cutoff;
+    } // method getCutoff
+
+    /** Sets the cutoff of a tier; the setters reject values out of range */
+    private static void setCutoff(final String tier, final int cutoff) {
+        if (tier.equals(KARATSUBA)) {
+            KaratsubaMultiplication.setCutoff(cutoff);
+        } else if (tier.equals(TOOM)) {
+            ToomCookMultiplication.setCutoff(cutoff);
+        } else if (tier.equals(NTT)) {
+            NttMultiplication.setCutoff(cutoff);
+        } else {
+            ParallelMultiplication.setThreshold(cutoff);
+        }
+    } // method setCutoff
+
+    /** Returns the path of the cutoffs file */
+    static Path file() {
+        String name = System.getProperty(FILE_PROPERTY);
+        return (name != null) ? Paths.get(name) : Paths.get(System.getProperty("user.home"), DEFAULT_FILE);
+    } // method file
+
+    /** Reads the cutoffs file, or returns no properties if there is none */
+    private static Properties readFile() throws IOException {
+        Properties saved = new Properties();
+        Path file = file();
+        if (Files.exists(file)) {
+            try (Reader reader = Files.newBufferedReader(file)) {
+                saved.load(reader);
+            } catch (IllegalArgumentException e) {
+                // Properties.load rejects a malformed Unicode escape this way
+                throw new IOException("Malformed cutoffs file " + file + ": " + e.getMessage(), e);
+            }
+        }
+        return saved;
+    } // method readFile
+
+    /**
+     * Returns the key of this machine's set: the CPU model, the architecture
+     * and the JVM, with everything but letters and digits turned into '_'.
+     */
+    public static String machineKey() {
+        String key = cpuModel() + "_" + System.getProperty("os.arch") + "_" + System.getProperty("java.vm.name")
+                + "_" + System.getProperty("java.vm.version");
+        return key.replaceAll("[^A-Za-z0-9]+", "_");
+    } // method machineKey
+
+    /**
+     * Returns the CPU model from /proc/cpuinfo: the model name on x86, or the
+     * implementer and part numbers on ARM. Elsewhere it falls back to the
+     * number of processors.
+     */
+    private static String cpuModel() {
+        String model = null;
+        String implementer = "";
+        String part = "";
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/cpuinfo"))) {
+                int colon = line.indexOf(':');
+                String name = (colon < 0) ? "" : line.substring(0, colon).trim();
+                String value = (colon < 0) ? "" : line.substring(colon + 1).trim();
+                if (model == null && name.equals("model name")) {
+                    model = value;
+                } else if (implementer.isEmpty() && name.equals("CPU implementer")) {
+                    implementer = value;
+                } else if (part.isEmpty() && name.equals("CPU part")) {
+                    part = value;
+                }
+            }
+        } catch (IOException e) {
+            // Not Linux: fall through to the processor count
+        }
+        if (model == null) {
+            model = implementer.isEmpty() ? Runtime.getRuntime().availableProcessors() + "cpus"
+                    : "cpu" + implementer + "part" + part;
+        }
+        return model;
+    } // method cpuModel
+
+    /** Tunes the cutoffs for this machine, saves them and shows the change */
+    public static void main(String[] args) throws IOException {
+        int base = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_BASE;
+        System.out.println("Machine: " + machineKey());
+        applyOnFirstUse();
+        for (String tier : TIERS) {
+            System.out.printf("%-10s before %8d%n", tier, getCutoff(tier));
+        }
+        tune(base);
+        save();
+        for (String tier : TIERS) {
+            System.out.printf("%-10s after  %8d%n", tier, getCutoff(tier));
+        }
+        System.out.println("Saved to " + file());
+    } // method main
+
+} // class CutoffTuner
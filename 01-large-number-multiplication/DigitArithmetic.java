@@ -0,0 +1,364 @@
+/**
+ * Single-digit arithmetic helpers shared by the multiplication algorithms in
+ * this folder. Every number is an array of digits, most significant digit
+ * first, exactly like the arrays used by GradeSchoolMultiplication_Solution.
+ * Arrays are aligned on their last (least significant) digit, so a "shift" of
+ * k positions means multiplying by base^k.
+ */
+public class DigitArithmetic {
+
+    /**
+     * Returns log2(base) when base is a power of two, or -1 otherwise. For those
+     * bases a digit is split off with a mask and a shift instead of % and /,
+     * which cost many times more than a shift on most hardware.
+     *
+     * @param base the number base of the system
+     * @return the number of bits per digit, or -1 if base is not a power of two
+     */
+    public static int powerOfTwoBits(final int base) {
+        return (Integer.bitCount(base) == 1) ? Integer.numberOfTrailingZeros(base) : -1;
+    } // method powerOfTwoBits
+
+    /**
+     * Adds two digit arrays and returns their sum in a new array that is one
+     * digit longer than the longer input, so the final carry always fits.
+     *
+     * @param a    one of the two numbers to add
+     * @param b    the other number to add
+     * @param base the number base of the system
+     * @return a + b, possibly with a leading 0
+     */
+    public static int[] add(final int[] a, final int[] b, final int base) {
+        int[] sum = new int[Math.max(a.length, b.length) + 1];
+        add(a, 0, a.length, b, 0, b.length, base, sum, 0);
+        return sum;
+    } // method add
+
+    /**
+     * Span form of add: adds the digits two views cover into one new array and
+     * returns a view of the sum, without the leading 0 when there is no final
+     * carry.
+     *
+     * @param a    one of the two numbers to add
+     * @param b    the other number to add
+     * @param base the number base of the system
+     * @return a + b
+     */
+    public static DigitSpan add(final DigitSpan a, final DigitSpan b, final int base) {
+        int[] sum = new int[Math.max(a.length(), b.length()) + 1];
+        add(a.array(), a.offset(), a.length(), b.array(), b.offset(), b.length(), base, sum, 0);
+        return DigitSpan.of(sum).trimLeadingZero();
+    } // method add
+
+    /**
+     * Adds two ranges of digits and writes their sum, max(aLength, bLength) + 1
+     * digits long, into sum starting at sumOffset. The sum may not overlap the
+     * inputs. This is the allocation-free form of add.
+     *
+     * @param a         the array holding one of the two numbers to add
+     * @param aOffset   where that number starts in a
+     * @param aLength   how many digits it has
+     * @param b         the array holding the other number to add
+     * @param bOffset   where that number starts in b
+     * @param bLength   how many digits it has
+     * @param base      the number base of the system
+     * @param sum       the array to write the sum into
+     * @param sumOffset where the sum starts in its array
+     */
+    public static void add(final int[] a, final int aOffset, final int aLength, final int[] b, final int bOffset,
+            final int bLength, final int base, int[] sum, final int sumOffset) {
+        int sumLength = Math.max(aLength, bLength) + 1;
+        int bits = powerOfTwoBits(base);
+        // Two digits and a carry exceed an int once the base is above 2^30
+        long carry = 0;
+        for (int k = 0; k < sumLength; k++) {
+            long digit = carry;
+            if (k < aLength) {
+                digit += a[aOffset + aLength - 1 - k];
+            }
+            if (k < bLength) {
+                digit += b[bOffset + bLength - 1 - k];
+            }
+            if (bits >= 0) {
+                sum[sumOffset + sumLength - 1 - k] = (int) (digit & (base - 1));
+                carry = digit >>> bits;
+            } else {
+                sum[sumOffset + sumLength - 1 - k] = (int) (digit % base);
+                carry = digit / base;
+            }
+        }
+    } // method add
+
+    /**
+     * Adds src into target, with the last digit of src lined up shift positions
+     * to the left of the last digit of target. Carries ripple towards the front of
+     * target. Leading digits of src that fall outside target must be 0.
+     *
+     * @param target the array to accumulate into
+     * @param src    the number to add
+     * @param shift  how many positions to shift src to the left
+     * @param base   the number base of the system
+     */
+    public static void addInto(int[] target, final int[] src, final int shift, final int base) {
+        addInto(target, 0, target.length, src, 0, src.length, shift, base);
+    } // method addInto
+
+    /**
+     * Range form of addInto: adds the srcLength digits at srcOffset into the
+     * targetLength digits at targetOffset, shifted left by shift positions.
+     *
+     * @param target       the array to accumulate into
+     * @param targetOffset where the accumulating number starts in target
+     * @param targetLength how many digits it has
+     * @param src          the array holding the number to add
+     * @param srcOffset    where that number starts in src
+     * @param srcLength    how many digits it has
+     * @param shift        how many positions to shift src to the left
+     * @param base         the number base of the system
+     */
+    public static void addInto(int[] target, final int targetOffset, final int targetLength, final int[] src,
+            final int srcOffset, final int srcLength, final int shift, final int base) {
+        int bits = powerOfTwoBits(base);
+        // Summed in a long, like add, for bases above 2^30
+        long carry = 0;
+        int t = targetOffset + targetLength - 1 - shift;
+        for (int s = srcOffset + srcLength - 1; s >= srcOffset && t >= targetOffset; s--, t--) {
+            long digit = (long) target[t] + src[s] + carry;
+            if (bits >= 0) {
+                target[t] = (int) (digit & (base - 1));
+                carry = digit >>> bits;
+            } else {
+                target[t] = (int) (digit % base);
+                carry = digit / base;
+            }
+        }
+        // Keep rippling the carry through the digits of target
+        while (carry > 0 && t >= targetOffset) {
+            long digit = target[t] + carry;
+            if (bits >= 0) {
+                target[t] = (int) (digit & (base - 1));
+                carry = digit >>> bits;
+            } else {
+                target[t] = (int) (digit % base);
+                carry = digit / base;
+            }
+            t--;
+        }
+    } // method addInto
+
+    /**
+     * Subtracts b from a in place. The caller guarantees that a >= b; leading
+     * digits of b that do not fit in a must be 0.
+     *
+     * @param a    the minuend, overwritten with a - b
+     * @param b    the subtrahend
+     * @param base the number base of the system
+     */
+    public static void subtractInPlace(int[] a, final int[] b, final int base) {
+        subtractInPlace(a, 0, a.length, b, 0, b.length, base);
+    } // method subtractInPlace
+
+    /**
+     * Range form of subtractInPlace: subtracts the bLength digits at bOffset from
+     * the aLength digits at aOffset.
+     *
+     * @param a       the array holding the minuend, overwritten with a - b
+     * @param aOffset where the minuend starts in a
+     * @param aLength how many digits it has
+     * @param b       the array holding the subtrahend
+     * @param bOffset where the subtrahend starts in b
+     * @param bLength how many digits it has
+     * @param base    the number base of the system
+     */
+    public static void subtractInPlace(int[] a, final int aOffset, final int aLength, final int[] b,
+            final int bOffset, final int bLength, final int base) {
+        int borrow = 0;
+        int t = aOffset + aLength - 1;
+        for (int s = bOffset + bLength - 1; s >= bOffset && t >= aOffset; s--, t--) {
+            int digit = a[t] - b[s] - borrow;
+            borrow = (digit < 0) ? 1 : 0;
+            a[t] = digit + borrow * base;
+        }
+        // Keep rippling the borrow through the digits of a
+        while (borrow > 0 && t >= aOffset) {
+            int digit = a[t] - borrow;
+            borrow = (digit < 0) ? 1 : 0;
+            a[t] = digit + borrow * base;
+            t--;
+        }
+    } // method subtractInPlace
+
+    /**
+     * Subtracts b from a and returns the difference in a new array as long as a.
+     * The caller guarantees that a >= b.
+     *
+     * @param a    the minuend
+     * @param b    the subtrahend
+     * @param base the number base of the system
+     * @return a - b
+     */
+    public static int[] subtract(final int[] a, final int[] b, final int base) {
+        int[] difference = padTo(a, Math.max(a.length, 1));
+        subtractInPlace(difference, b, base);
+        return difference;
+    } // method subtract
+
+    /**
+     * Span form of subtract: the difference goes into one new array as long as
+     * a, and the view returned drops its leading zeros. The caller guarantees
+     * that a >= b.
+     *
+     * @param a    the minuend
+     * @param b    the subtrahend
+     * @param base the number base of the system
+     * @return a - b, without leading zeros; zero is the empty span
+     */
+    public static DigitSpan subtract(final DigitSpan a, final DigitSpan b, final int base) {
+        int[] difference = a.toArray();
+        subtractInPlace(difference, 0, difference.length, b.array(), b.offset(), b.length(), base);
+        return DigitSpan.of(difference).stripLeadingZeros();
+    } // method subtract
+
+    /**
+     * Compares two digit arrays by value. Leading zeros are ignored, so arrays of
+     * different lengths compare correctly.
+     *
+     * @param a one of the two numbers to compare
+     * @param b the other number to compare
+     * @return a negative number, zero, or a positive number as a is less than,
+     *         equal to, or greater than b
+     */
+    public static int compare(final int[] a, final int[] b) {
+        int comparison = 0;
+        int length = Math.max(a.length, b.length);
+        // Line both numbers up on their last digit and scan from the front
+        for (int k = length - 1; k >= 0 && comparison == 0; k--) {
+            int digitA = (k < a.length) ? a[a.length - 1 - k] : 0;
+            int digitB = (k < b.length) ? b[b.length - 1 - k] : 0;
+            comparison = Integer.compare(digitA, digitB);
+        }
+        return comparison;
+    } // method compare
+
+    /**
+     * Multiplies a digit array by a small non-negative factor. The digit
+     * products are taken in a long, so any factor works in any base.
+     *
+     * @param a      the number to multiply
+     * @param factor the small factor
+     * @param base   the number base of the system
+     * @return a * factor, one digit longer than a
+     */
+    public static int[] multiplySmall(final int[] a, final int factor, final int base) {
+        int[] product = new int[a.length + 1];
+        int bits = powerOfTwoBits(base);
+        long carry = 0;
+        for (int k = a.length - 1; k >= 0; k--) {
+            long digit = (long) a[k] * factor + carry;
+            if (bits >= 0) {
+                product[k + 1] = (int) (digit & (base - 1));
+                carry = digit >>> bits;
+            } else {
+                product[k + 1] = (int) (digit % base);
+                carry = digit / base;
+            }
+        }
+        // The carry is below factor, so it fits in the one extra digit
+        product[0] = (int) carry;
+        return product;
+    } // method multiplySmall
+
+    /**
+     * Divides a digit array by a small positive divisor using long division from
+     * the front, the way it is done on paper. This is how Toom-Cook performs its
+     * exact divisions by 2 and 3 in any base.
+     *
+     * @param a       the dividend
+     * @param divisor the small positive divisor
+     * @param base    the number base of the system
+     * @return the quotient, as long as a; the remainder is dropped
+     */
+    public static int[] divideSmall(final int[] a, final int divisor, final int base) {
+        int[] quotient = new int[a.length];
+        long remainder = 0;
+        for (int k = 0; k < a.length; k++) {
+            long current = remainder * base + a[k];
+            quotient[k] = (int) (current / divisor);
+            remainder = current % divisor;
+        }
+        return quotient;
+    } // method divideSmall
+
+    /**
+     * Writes a non-negative long as a digit array.
+     *
+     * @param value the number
+     * @param base  the number base of the system
+     * @return its digits, without leading zeros; zero is the empty array
+     */
+    public static int[] fromLong(final long value, final int base) {
+        int length = 0;
+        for (long v = value; v > 0; v /= base) {
+            length++;
+        }
+        int[] result = new int[length];
+        long v = value;
+        for (int d = length - 1; d >= 0; d--) {
+            result[d] = (int) (v % base);
+            v /= base;
+        }
+        return result;
+    } // method fromLong
+
+    /**
+     * Returns a copy of the array, padded with leading zeros to the given length.
+     *
+     * @param array  the digits to copy
+     * @param length the length of the copy; must be >= array.length
+     * @return the padded copy
+     */
+    public static int[] padTo(final int[] array, final int length) {
+        int[] padded = new int[length];
+        System.arraycopy(array, 0, padded, length - array.length, array.length);
+        return padded;
+    } // method padTo
+
+    /**
+     * Returns the array without any of its leading zeros. Zero itself becomes the
+     * empty array, which every method in this folder reads as 0.
+     *
+     * @param array the digits to strip
+     * @return the significant digits, or the same array if there are no leading
+     *         zeros
+     */
+    public static int[] stripLeadingZeros(final int[] array) {
+        int first = 0;
+        while (first < array.length && array[first] == 0) {
+            first++;
+        }
+        int[] stripped = array;
+        if (first > 0) {
+            stripped = new int[array.length - first];
+            System.arraycopy(array, first, stripped, 0, stripped.length);
+        }
+        return stripped;
+    } // method stripLeadingZeros
+
+    /**
+     * Removes a single leading 0 from a product, the same way the grade-school
+     * method does. A product of an n-digit and an m-digit number has either n+m or
+     * n+m-1 significant digits, so one zero is all there is to drop.
+     *
+     * @param product the product with x.length + y.length digits
+     * @return the product, without its leading 0 if it had one
+     */
+    public static int[] trimLeadingZero(final int[] product) {
+        int[] result = product;
+        if (product.length > 1 && product[0] == 0) {
+            result = new int[product.length - 1];
+            System.arraycopy(product, 1, result, 0, result.length);
+        }
+        return result;
+    } // method trimLeadingZero
+
+} // class DigitArithmetic
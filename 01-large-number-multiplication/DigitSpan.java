@@ -0,0 +1,188 @@
+import java.util.Arrays; // for copyOfRange() and toString() only
+
+/**
+ * A view of a number inside a digit array: the length digits of array that
+ * start at offset, most significant first.
+ *
+ * The kernels in this folder already work on such ranges, as (array, offset,
+ * length) triples, so that the recursive methods can multiply halves in place.
+ * A span carries the triple as one value. Trimming a leading zero, splitting
+ * into high and low parts and slicing only make a new view of the same digits,
+ * without copying them. The span forms of multiply, add and subtract in
+ * GradeSchoolMultiplication_Solution and DigitArithmetic take and return
+ * spans, so a chain of operations copies nothing just to drop a zero.
+ *
+ * A span does not copy its array, and the array stays writable through any
+ * other reference to it. Spans returned by the arithmetic methods view arrays
+ * of their own.
+ */
+public class DigitSpan {
+
+    /** The empty span, which reads as 0 like the empty array */
+    private static final DigitSpan EMPTY = new DigitSpan(new int[0], 0, 0);
+
+    /** The digits, shared with whoever made the span */
+    private final int[] array;
+
+    /** Where the number starts in array */
+    private final int offset;
+
+    /** How many digits the number has */
+    private final int length;
+
+    /**
+     * Makes a view of the length digits of array that start at offset.
+     *
+     * @param array  the digits; not copied
+     * @param offset where the number starts in array
+     * @param length how many digits it has
+     * @throws IllegalArgumentException if the range is not inside array
+     */
+    public DigitSpan(final int[] array, final int offset, final int length) {
+        if (offset < 0 || length < 0 || offset > array.length - length) {
+            throw new IllegalArgumentException("Span of " + length + " digits at " + offset
+                    + " is outside an array of " + array.length);
+        }
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+    } // constructor
+
+    /**
+     * Makes a view of a whole digit array.
+     *
+     * @param digits the digits; not copied
+     * @return the view
+     */
+    public static DigitSpan of(final int[] digits) {
+        return new DigitSpan(digits, 0, digits.length);
+    } // method of
+
+    /** Returns the array the span views */
+    public int[] array() {
+        return this.array;
+    } // method array
+
+    /** Returns where the number starts in array() */
+    public int offset() {
+        return this.offset;
+    } // method offset
+
+    /** Returns the number of digits */
+    public int length() {
+        return this.length;
+    } // method length
+
+    /**
+     * Returns a digit of the number.
+     *
+     * @param index the position of the digit, 0 for the most significant
+     * @return the digit
+     */
+    public int get(final int index) {
+        if (index < 0 || index >= this.length) {
+            throw new IndexOutOfBoundsException("Digit " + index + " of " + this.length);
+        }
+        return this.array[this.offset + index];
+    } // method get
+
+    /** Returns true if the span covers its whole array */
+    public boolean isWhole() {
+        return this.offset == 0 && this.length == this.array.length;
+    } // method isWhole
+
+    /** Returns true if both spans view the same digits of the same array */
+    public boolean sameDigits(final DigitSpan other) {
+        return this.array == other.array && this.offset == other.offset && this.length == other.length;
+    } // method sameDigits
+
+    /**
+     * Returns the view without a single leading 0, the way
+     * DigitArithmetic.trimLeadingZero drops the zero of a product, but without
+     * a copy.
+     *
+     * @return the trimmed view, or this span if it does not start with 0 or
+     *         has only one digit
+     */
+    public DigitSpan trimLeadingZero() {
+        DigitSpan result = this;
+        if (this.length > 1 && this.array[this.offset] == 0) {
+            result = new DigitSpan(this.array, this.offset + 1, this.length - 1);
+        }
+        return result;
+    } // method trimLeadingZero
+
+    /**
+     * Returns the view without any of its leading zeros, like
+     * DigitArithmetic.stripLeadingZeros. Zero becomes the empty span.
+     *
+     * @return the significant digits, or this span if there are no leading
+     *         zeros
+     */
+    public DigitSpan stripLeadingZeros() {
+        int first = this.offset;
+        int end = this.offset + this.length;
+        while (first < end && this.array[first] == 0) {
+            first++;
+        }
+        DigitSpan result = this;
+        if (first == end) {
+            result = EMPTY;
+        } else if (first > this.offset) {
+            result = new DigitSpan(this.array, first, end - first);
+        }
+        return result;
+    } // method stripLeadingZeros
+
+    /**
+     * Returns the number divided by base^count: all but the last count digits.
+     * With x = x1 * base^count + x0, this is x1, the high half of a Karatsuba
+     * split.
+     *
+     * @param count how many digits to drop from the back
+     * @return the high part, empty if count is at least length()
+     */
+    public DigitSpan high(final int count) {
+        int keep = Math.max(0, this.length - Math.max(0, count));
+        return new DigitSpan(this.array, this.offset, keep);
+    } // method high
+
+    /**
+     * Returns the number modulo base^count: its last count digits, x0 in
+     * x = x1 * base^count + x0.
+     *
+     * @param count how many digits to keep from the back
+     * @return the low part, the whole span if count is at least length()
+     */
+    public DigitSpan low(final int count) {
+        int keep = Math.min(this.length, Math.max(0, count));
+        return new DigitSpan(this.array, this.offset + this.length - keep, keep);
+    } // method low
+
+    /**
+     * Returns a view of some of the digits.
+     *
+     * @param from   the position of the first digit, 0 for the most significant
+     * @param count  how many digits
+     * @return the view
+     * @throws IllegalArgumentException if the digits are not all in this span
+     */
+    public DigitSpan slice(final int from, final int count) {
+        if (from < 0 || count < 0 || from > this.length - count) {
+            throw new IllegalArgumentException("Slice of " + count + " digits at " + from
+                    + " is outside a span of " + this.length);
+        }
+        return new DigitSpan(this.array, this.offset + from, count);
+    } // method slice
+
+    /** Copies the digits into a new array of length() digits */
+    public int[] toArray() {
+        return Arrays.copyOfRange(this.array, this.offset, this.offset + this.length);
+    } // method toArray
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    } // method toString
+
+} // class DigitSpan
@@ -0,0 +1,73 @@
+/**
+ * Where the digits of a number live: an int[] on the heap, a MemorySegment off
+ * the heap, or a mapped file. Digits are indexed by long, most significant
+ * first like the digit arrays, so a storage can hold more than the 2^31 digits
+ * an array can.
+ *
+ * The kernels in StorageArithmetic work on any storage. They copy it block by
+ * block into ordinary arrays with read, run the array kernels on those, and
+ * copy the results back with write. Bulk reads and writes are what a storage
+ * must make fast; get and set are for single digits.
+ *
+ * close() releases the memory behind a storage right away where the storage
+ * can do that, which is the point of keeping huge numbers off the heap. Use it
+ * in a try-with-resources statement.
+ */
+public interface DigitStorage extends AutoCloseable {
+
+    /** Returns the number of digits */
+    long length();
+
+    /**
+     * Returns one digit.
+     *
+     * @param index its position, 0 for the most significant digit
+     * @return the digit
+     */
+    int get(long index);
+
+    /**
+     * Changes one digit.
+     *
+     * @param index its position, 0 for the most significant digit
+     * @param digit the new digit
+     */
+    void set(long index, int digit);
+
+    /**
+     * Copies count digits, starting with digit from, into an array.
+     *
+     * @param from      the position of the first digit to copy
+     * @param dst       the array to copy into
+     * @param dstOffset where the first digit goes in dst
+     * @param count     how many digits to copy
+     */
+    void read(long from, int[] dst, int dstOffset, int count);
+
+    /**
+     * Copies count digits from an array into the storage, the first one at
+     * position to.
+     *
+     * @param src       the array to copy from
+     * @param srcOffset where the first digit is in src
+     * @param to        the position the first digit goes to
+     * @param count     how many digits to copy
+     */
+    void write(int[] src, int srcOffset, long to, int count);
+
+    /** Releases the memory behind the storage; it must not be used afterwards */
+    @Override
+    void close();
+
+    /**
+     * Wraps an array without copying it; the storage reads and writes the array
+     * itself.
+     *
+     * @param digits the digits, most significant first
+     * @return a storage backed by digits
+     */
+    static DigitStorage of(final int[] digits) {
+        return new ArrayDigits(digits);
+    } // method of
+
+} // interface DigitStorage
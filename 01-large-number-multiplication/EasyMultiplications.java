@@ -10,17 +10,21 @@ public class EasyMultiplications {
      * digits and that each digit is < base. No guard statement is in place for this
      * expectation.
      * 
+     * An int holds only about nine decimal digits; longer numbers throw an
+     * ArithmeticException instead of silently overflowing. RadixConversion
+     * converts digit arrays of any length between bases.
+     * 
      * @param array input array with single digit elements
      * @param base  number system base
      * @return a scalar value for the digits represented in the array; e.g. the
      *         array [4,0,7,7] will be converted to the scalar 4077.
+     * @throws ArithmeticException if the value does not fit in an int
      */
     public static int convertToScalar(int[] array, int base) {
         int scalar = 0;
-        int power = 1;
-        for (int i = array.length - 1; i >= 0; i--) {
-            scalar += array[i] * power;
-            power *= base;
+        // Horner's rule, so no power of the base is computed past the last digit
+        for (int i = 0; i < array.length; i++) {
+            scalar = Math.addExact(Math.multiplyExact(scalar, base), array[i]);
         }
         return scalar;
     } // method convertToScalar
@@ -39,11 +43,29 @@ public class EasyMultiplications {
      *         will be converted to array [4,0,7,7]
      */
     public static int[] convertToArray(final int scalar, int base) {
-        int[] array = new int[1 + (int) Math.log10(scalar)];
-        int temp = scalar;
-        for (int i = array.length - 1; i >= 0; i--) {
-            array[i] = temp % base;
-            temp /= base;
+        int[] array;
+        int bits = DigitArithmetic.powerOfTwoBits(base);
+        if (bits > 0) {
+            // Each digit is the next group of bits, so masks and shifts do
+            int significantBits = Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(scalar));
+            array = new int[(significantBits + bits - 1) / bits];
+            int temp = scalar;
+            for (int i = array.length - 1; i >= 0; i--) {
+                array[i] = temp & (base - 1);
+                temp >>>= bits;
+            }
+        } else {
+            // Count the digits in this base; Math.log10 only works for base 10
+            int length = 1;
+            for (int temp = scalar / base; temp > 0; temp /= base) {
+                length++;
+            }
+            array = new int[length];
+            int temp = scalar;
+            for (int i = array.length - 1; i >= 0; i--) {
+                array[i] = temp % base;
+                temp /= base;
+            }
         }
         return array;
     } // method convertToArray
@@ -1,4 +1,4 @@
-import java.util.Arrays; // for toString() only
+import java.util.Arrays; // for toString() and fill() only
 
 public class GradeSchoolMultiplication_Solution {
 
@@ -9,7 +9,13 @@ public class GradeSchoolMultiplication_Solution {
      * in the form of an array. Only single-digit multiplications are allowed to be
      * performed with the built-in multiplication operator (*). We are also using
      * single-digit arithmetic for addition, division, and modulo and we are allowed
-     * a carry digit.
+     * a carry digit. Depending on the operand lengths, multiplyUntrimmed picks
+     * the grade-school loop, Karatsuba, Toom-Cook 3-way or the NTT to do the
+     * work, or the sparse method for operands that are mostly zeros. Passing
+     * the same array twice squares it with the faster square.
+     * 
+     * Every base from 2 to Integer.MAX_VALUE works, with digits from 0 to
+     * base - 1: all tiers keep their digit sums and carries in longs.
      * 
      * @param x    one of the two arrays with the interests to multiply
      * @param y    the other array with the integer to multiply
@@ -18,6 +24,502 @@ public class GradeSchoolMultiplication_Solution {
      *         array.
      */
     public static int[] multiply(final int[] x, final int[] y, final int base) {
+        int[] result;
+        if (x.length == 0 || y.length == 0) {
+            result = new int[1];
+        } else {
+            // The faster methods return x.length + y.length digits, so trim like below
+            result = DigitArithmetic.trimLeadingZero(multiplyUntrimmed(x, y, base));
+        }
+        if (ProductCheck.isEnabled()) {
+            ProductCheck.verify(x, y, result, base);
+        }
+        return result;
+    } // method multiply
+
+    /**
+     * Multiplies two integers represented as arrays, optionally on every core of
+     * the common fork/join pool. Parallel mode splits large products into
+     * independent sub-products (see ParallelMultiplication); products below its
+     * threshold run sequentially either way.
+     * 
+     * @param x        one of the two arrays with the interests to multiply
+     * @param y        the other array with the integer to multiply
+     * @param base     the number base of the system
+     * @param parallel true to use the fork/join pool
+     * @return the product of the two numbers in arrays, also in the form of an
+     *         array.
+     */
+    public static int[] multiply(final int[] x, final int[] y, final int base, final boolean parallel) {
+        int[] result;
+        if (!parallel || x.length == 0 || y.length == 0) {
+            result = multiply(x, y, base);
+        } else {
+            CutoffTuner.applyOnFirstUse();
+            result = DigitArithmetic.trimLeadingZero(ParallelMultiplication.multiply(x, y, base));
+            if (ProductCheck.isEnabled()) {
+                ProductCheck.verify(x, y, result, base);
+            }
+        }
+        return result;
+    } // method multiply
+
+    /**
+     * Multiplies xs[i] by ys[i] for every i, spread over the cores of the common
+     * fork/join pool, largest products first, with per-thread workspaces (see
+     * BatchMultiplication).
+     * 
+     * @param xs   the first operand of each product
+     * @param ys   the second operand of each product
+     * @param base the number base of the system
+     * @return the products in the order of the operands, each as multiply
+     *         returns it
+     */
+    public static int[][] multiplyAll(final int[][] xs, final int[][] ys, final int base) {
+        return BatchMultiplication.multiplyAll(xs, ys, base);
+    } // method multiplyAll
+
+    /**
+     * Span form of multiply: multiplies the digits two views cover and returns
+     * a view of the product. The product is computed into one new array, and
+     * its leading zero is dropped by moving the view instead of copying.
+     * 
+     * @param x    one of the two numbers to multiply
+     * @param y    the other number to multiply
+     * @param base the number base of the system
+     * @return the product, without its leading zero
+     */
+    public static DigitSpan multiply(final DigitSpan x, final DigitSpan y, final int base) {
+        DigitSpan result;
+        if (x.length() == 0 || y.length() == 0) {
+            result = DigitSpan.of(new int[1]);
+        } else {
+            result = DigitSpan.of(multiplyUntrimmed(x, y, base)).trimLeadingZero();
+        }
+        if (ProductCheck.isEnabled()) {
+            ProductCheck.verify(x, y, result, base);
+        }
+        return result;
+    } // method multiply
+
+    /**
+     * Span form of multiplyUntrimmed. Views of whole arrays go through the array
+     * dispatcher; other views are multiplied where they are by the range
+     * kernels of multiplyInto, so nothing is sliced off into a copy. Only in
+     * Toom-3's range, which splits its operands into copies anyway, are the
+     * views copied first.
+     * 
+     * @param x    one of the two numbers to multiply
+     * @param y    the other number to multiply
+     * @param base the number base of the system
+     * @return the product, padded with leading zeros to x.length() + y.length()
+     *         digits
+     */
+    public static int[] multiplyUntrimmed(final DigitSpan x, final DigitSpan y, final int base) {
+        CutoffTuner.applyOnFirstUse();
+        int[] result;
+        int shorter = Math.min(x.length(), y.length());
+        if (x.isWhole() && y.isWhole()) {
+            result = multiplyUntrimmed(x.array(), y.array(), base);
+        } else if (shorter >= ToomCookMultiplication.getCutoff()
+                && !NttMultiplication.supports(x.length(), y.length(), base)) {
+            int[] xDigits = x.toArray();
+            result = multiplyUntrimmed(xDigits, x.sameDigits(y) ? xDigits : y.toArray(), base);
+        } else {
+            result = new int[x.length() + y.length()];
+            multiplyInto(x.array(), x.offset(), x.length(), y.array(), y.offset(), y.length(), base, result, 0,
+                    MultiplicationWorkspace.forCurrentThread());
+        }
+        return result;
+    } // method multiplyUntrimmed
+
+    /**
+     * Dispatcher behind multiply: picks the grade-school loop, Karatsuba, Toom-3
+     * or the NTT by the length of the shorter operand, and returns the product
+     * with exactly x.length + y.length digits. The recursive methods call back
+     * into it for their sub-products. Bases too large for the NTT stay with
+     * Toom-3. Operands with few enough nonzero digits go to
+     * SparseMultiplication first, whatever their length. The first call
+     * applies the cutoffs CutoffTuner saved for this machine.
+     * 
+     * @param x    one of the two arrays with the interests to multiply
+     * @param y    the other array with the integer to multiply
+     * @param base the number base of the system
+     * @return the product, padded with leading zeros to x.length + y.length
+     *         digits
+     */
+    public static int[] multiplyUntrimmed(final int[] x, final int[] y, final int base) {
+        CutoffTuner.applyOnFirstUse();
+        int[] result;
+        int shorter = Math.min(x.length, y.length);
+        if (shorter == 0) {
+            result = new int[x.length + y.length];
+        } else if (SparseMultiplication.applies(x, y)) {
+            result = SparseMultiplication.multiply(x, y, base);
+        } else if (x == y) {
+            result = squareUntrimmed(x, base);
+        } else if (shorter >= NttMultiplication.getCutoff() && NttMultiplication.supports(x.length, y.length, base)) {
+            result = NttMultiplication.multiply(x, y, base);
+        } else if (shorter >= ToomCookMultiplication.getCutoff()) {
+            result = ToomCookMultiplication.multiply(x, y, base);
+        } else if (shorter >= KaratsubaMultiplication.getCutoff()) {
+            result = KaratsubaMultiplication.multiply(x, y, base);
+        } else {
+            result = columnWise(x, y, base);
+        }
+        return result;
+    } // method multiplyUntrimmed
+
+    /**
+     * Squares an integer represented as an array. Squaring needs about half the
+     * digit products of a general multiplication: the cross terms x[i] * x[j] and
+     * x[j] * x[i] are equal, so each is computed once and doubled. Every tier has
+     * a squaring version that exploits this, and multiply(x, x) ends up here.
+     * 
+     * @param x    the array with the integer to square
+     * @param base the number base of the system
+     * @return the square of the number, also in the form of an array
+     */
+    public static int[] square(final int[] x, final int base) {
+        int[] result;
+        if (x.length == 0) {
+            result = new int[1];
+        } else {
+            result = DigitArithmetic.trimLeadingZero(squareUntrimmed(x, base));
+        }
+        if (ProductCheck.isEnabled()) {
+            ProductCheck.verify(x, x, result, base);
+        }
+        return result;
+    } // method square
+
+    /**
+     * Dispatcher behind square: the same tiers and cutoffs as multiplyUntrimmed,
+     * each with its squaring kernel.
+     * 
+     * @param x    the array with the integer to square
+     * @param base the number base of the system
+     * @return the square, padded with leading zeros to 2 * x.length digits
+     */
+    public static int[] squareUntrimmed(final int[] x, final int base) {
+        CutoffTuner.applyOnFirstUse();
+        int[] result;
+        int length = x.length;
+        if (length > 0 && SparseMultiplication.applies(x, x)) {
+            result = SparseMultiplication.multiply(x, x, base);
+        } else if (length >= NttMultiplication.getCutoff() && NttMultiplication.supports(length, length, base)) {
+            result = NttMultiplication.multiply(x, x, base);
+        } else if (length >= ToomCookMultiplication.getCutoff()) {
+            result = ToomCookMultiplication.multiply(x, x, base);
+        } else if (length >= KaratsubaMultiplication.getCutoff()) {
+            result = KaratsubaMultiplication.multiply(x, x, base);
+        } else {
+            result = new int[2 * length];
+            squareColumnWise(x, 0, length, base, result, 0);
+        }
+        return result;
+    } // method squareUntrimmed
+
+    /**
+     * Allocation-free form of multiply for hot loops. The product is written into
+     * the front of out, all x.length + y.length digits of it, leading zero
+     * included, and every temporary array comes from the workspace. Once the
+     * workspace has grown to the operand sizes in use, a call allocates nothing,
+     * apart from a few small objects when ProductCheck is enabled.
+     * 
+     * The sparse, NTT, Karatsuba and column-wise methods run this way. Toom-3
+     * still allocates its evaluation values, so in its range (bases too large
+     * for the NTT) Karatsuba does the work instead.
+     * 
+     * @param x         one of the two arrays with the interests to multiply
+     * @param y         the other array with the integer to multiply
+     * @param base      the number base of the system
+     * @param out       receives the product; at least x.length + y.length long
+     *                  and not overlapping x or y
+     * @param workspace temporary arrays, reused from call to call
+     */
+    public static void multiplyInto(final int[] x, final int[] y, final int base, int[] out,
+            final MultiplicationWorkspace workspace) {
+        if (out.length < x.length + y.length) {
+            throw new IllegalArgumentException(
+                    "Output holds " + out.length + " digits; the product needs " + (x.length + y.length));
+        }
+        multiplyInto(x, 0, x.length, y, 0, y.length, base, out, 0, workspace);
+        if (ProductCheck.isEnabled()) {
+            ProductCheck.verify(DigitSpan.of(x), DigitSpan.of(y), new DigitSpan(out, 0, x.length + y.length), base);
+        }
+    } // method multiplyInto
+
+    /**
+     * Range form of multiplyInto: multiplies the xLength digits at xOffset by
+     * the yLength digits at yOffset and writes all xLength + yLength digits of
+     * the product into out starting at outOffset. Equal ranges of the same
+     * array are squared.
+     * 
+     * @param x         the array holding one of the numbers to multiply
+     * @param xOffset   where that number starts in x
+     * @param xLength   how many digits it has
+     * @param y         the array holding the other number to multiply
+     * @param yOffset   where that number starts in y
+     * @param yLength   how many digits it has
+     * @param base      the number base of the system
+     * @param out       receives the product; may not overlap x or y
+     * @param outOffset where the product starts in out
+     * @param workspace temporary arrays, reused from call to call
+     */
+    public static void multiplyInto(final int[] x, final int xOffset, final int xLength, final int[] y,
+            final int yOffset, final int yLength, final int base, int[] out, final int outOffset,
+            final MultiplicationWorkspace workspace) {
+        CutoffTuner.applyOnFirstUse();
+        int shorter = Math.min(xLength, yLength);
+        boolean squaring = x == y && xOffset == yOffset && xLength == yLength;
+        if (shorter > 0 && SparseMultiplication.applies(x, xOffset, xLength, y, yOffset, yLength)) {
+            SparseMultiplication.multiply(x, xOffset, xLength, y, yOffset, yLength, base, out, outOffset, workspace);
+        } else if (shorter >= NttMultiplication.getCutoff() && NttMultiplication.supports(xLength, yLength, base)) {
+            NttMultiplication.multiply(x, xOffset, xLength, y, yOffset, yLength, base, out, outOffset, workspace);
+        } else if (shorter >= KaratsubaMultiplication.getCutoff()) {
+            int scratchSize = KaratsubaMultiplication.scratchSize(Math.max(xLength, yLength));
+            int[] scratch = workspace.buffer(MultiplicationWorkspace.KARATSUBA, scratchSize);
+            if (squaring) {
+                KaratsubaMultiplication.square(x, xOffset, xLength, base, out, outOffset, scratch, 0);
+            } else {
+                KaratsubaMultiplication.multiply(x, xOffset, xLength, y, yOffset, yLength, base, out, outOffset,
+                        scratch, 0);
+            }
+        } else if (squaring) {
+            squareColumnWise(x, xOffset, xLength, base, out, outOffset);
+        } else {
+            columnWise(x, xOffset, xLength, y, yOffset, yLength, base, out, outOffset);
+        }
+    } // method multiplyInto
+
+    /**
+     * A product of ranges written into a range, all xLength + yLength digits of
+     * it. The scratch range and the cutoff are passed through for kernels that
+     * recurse; others may ignore them.
+     */
+    interface RangeProduct {
+        void multiply(int[] x, int xOffset, int xLength, int[] y, int yOffset, int yLength, int base, int[] product,
+                int productOffset, int[] scratch, int scratchOffset, int cutoff);
+    } // interface RangeProduct
+
+    /**
+     * Multiplies operands of very different lengths by cutting the longer one
+     * into slices as long as the shorter one. Each slice product is balanced; it
+     * is computed by the kernel into the front of the scratch range and added
+     * into the product at the slice's position.
+     * 
+     * @param x             the array holding one of the numbers to multiply
+     * @param xOffset       where that number starts in x
+     * @param xLength       how many digits it has
+     * @param y             the array holding the other number to multiply
+     * @param yOffset       where that number starts in y
+     * @param yLength       how many digits it has
+     * @param base          the number base of the system
+     * @param product       receives all xLength + yLength digits of the product;
+     *                      may not overlap x, y or the scratch range
+     * @param productOffset where the product starts in its array
+     * @param scratch       working digits: 2 * min(xLength, yLength) for the
+     *                      slice products, followed by whatever the kernel needs
+     * @param scratchOffset where the working digits start in scratch
+     * @param cutoff        passed on to the kernel
+     * @param kernel        multiplies one slice by the shorter operand
+     */
+    static void multiplyInSlices(final int[] x, final int xOffset, final int xLength, final int[] y,
+            final int yOffset, final int yLength, final int base, int[] product, final int productOffset,
+            int[] scratch, final int scratchOffset, final int cutoff, final RangeProduct kernel) {
+        boolean xIsLonger = xLength >= yLength;
+        int[] longOperand = xIsLonger ? x : y;
+        int longOffset = xIsLonger ? xOffset : yOffset;
+        int longer = xIsLonger ? xLength : yLength;
+        int[] shortOperand = xIsLonger ? y : x;
+        int shortOffset = xIsLonger ? yOffset : xOffset;
+        int shorter = xIsLonger ? yLength : xLength;
+        int productLength = xLength + yLength;
+        Arrays.fill(product, productOffset, productOffset + productLength, 0);
+        int kernelScratchOffset = scratchOffset + 2 * shorter;
+        // Walk the longer operand from back to front, one slice at a time
+        for (int end = longer; end > 0; end -= shorter) {
+            int start = Math.max(0, end - shorter);
+            kernel.multiply(longOperand, longOffset + start, end - start, shortOperand, shortOffset, shorter, base,
+                    scratch, scratchOffset, scratch, kernelScratchOffset, cutoff);
+            DigitArithmetic.addInto(product, productOffset, productLength, scratch, scratchOffset,
+                    end - start + shorter, longer - end, base);
+        }
+    } // method multiplyInSlices
+
+    /**
+     * multiplyInto with the calling thread's own workspace.
+     * 
+     * @param x    one of the two arrays with the interests to multiply
+     * @param y    the other array with the integer to multiply
+     * @param base the number base of the system
+     * @param out  receives the product; at least x.length + y.length long
+     */
+    public static void multiplyInto(final int[] x, final int[] y, final int base, int[] out) {
+        multiplyInto(x, y, base, out, MultiplicationWorkspace.forCurrentThread());
+    } // method multiplyInto
+
+    /**
+     * The grade-school algorithm, reorganized column by column (Comba's method).
+     * Instead of writing every partial product into its own row and adding the
+     * rows afterwards, we add up all the digit products that land in one column
+     * of the result, x[i] * y[j] with i + j fixed, in a long. The carry is
+     * normalized once per column instead of after every digit product.
+     * 
+     * The only storage is the result itself, so memory is linear in the number of
+     * digits, where gradeSchool needs x.length * (x.length + y.length) ints.
+     * When a column could overflow a long (very large bases), the carries are
+     * normalized after every row instead, which is still linear in memory.
+     * 
+     * @param x    one of the two arrays with the interests to multiply
+     * @param y    the other array with the integer to multiply
+     * @param base the number base of the system
+     * @return the product, padded with leading zeros to x.length + y.length
+     *         digits
+     */
+    public static int[] columnWise(final int[] x, final int[] y, final int base) {
+        int[] result = new int[x.length + y.length];
+        columnWise(x, 0, x.length, y, 0, y.length, base, result, 0);
+        return result;
+    } // method columnWise
+
+    /**
+     * Column-wise squaring. In column k the products x[i] * x[k - i] and
+     * x[k - i] * x[i] are the same, so only the pairs with i < k - i are
+     * multiplied; their sum is doubled and the middle square, if k is even, is
+     * added once. That is about half the digit products of columnWise. Digits are
+     * counted from the back here, as in columnWise.
+     * 
+     * @param x            the array holding the number to square
+     * @param xOffset      where that number starts in x
+     * @param xLength      how many digits it has
+     * @param base         the number base of the system
+     * @param result       the array to write the 2 * xLength digits of the square
+     *                     into; may not overlap x
+     * @param resultOffset where the square starts in result
+     */
+    public static void squareColumnWise(final int[] x, final int xOffset, final int xLength, final int base,
+            int[] result, final int resultOffset) {
+        int resultLength = 2 * xLength;
+        int bits = DigitArithmetic.powerOfTwoBits(base);
+        if (xLength > 0 && (double) (base - 1) * (base - 1) * (xLength + 1) < Long.MAX_VALUE) {
+            long carry = 0;
+            int xLast = xOffset + xLength - 1;
+            int resultLast = resultOffset + resultLength - 1;
+            for (int column = 0; column < resultLength - 1; column++) {
+                long crossSum = 0;
+                int i = Math.max(0, column - (xLength - 1));
+                int j = column - i;
+                // Walk the pairs from both ends towards the middle of the column
+                while (i < j) {
+                    crossSum += (long) x[xLast - i] * x[xLast - j];
+                    i++;
+                    j--;
+                }
+                long sum = 2 * crossSum + carry;
+                if (i == j) {
+                    sum += (long) x[xLast - i] * x[xLast - i];
+                }
+                if (bits >= 0) {
+                    result[resultLast - column] = (int) (sum & (base - 1));
+                    carry = sum >>> bits;
+                } else {
+                    result[resultLast - column] = (int) (sum % base);
+                    carry = sum / base;
+                }
+            }
+            result[resultOffset] = (int) carry;
+        } else {
+            // Columns could overflow a long: leave it to the row-by-row loop
+            columnWise(x, xOffset, xLength, x, xOffset, xLength, base, result, resultOffset);
+        }
+    } // method squareColumnWise
+
+    /**
+     * Range form of columnWise: multiplies the xLength digits at xOffset by the
+     * yLength digits at yOffset and writes all xLength + yLength digits of the
+     * product into result starting at resultOffset. Nothing is allocated.
+     * 
+     * @param x            the array holding one of the numbers to multiply
+     * @param xOffset      where that number starts in x
+     * @param xLength      how many digits it has
+     * @param y            the array holding the other number to multiply
+     * @param yOffset      where that number starts in y
+     * @param yLength      how many digits it has
+     * @param base         the number base of the system
+     * @param result       the array to write the product into; may not overlap x
+     *                     or y
+     * @param resultOffset where the product starts in result
+     */
+    public static void columnWise(final int[] x, final int xOffset, final int xLength, final int[] y,
+            final int yOffset, final int yLength, final int base, int[] result, final int resultOffset) {
+        int resultLength = xLength + yLength;
+        // A column adds up at most min(xLength, yLength) digit products and a carry
+        int shorter = Math.min(xLength, yLength);
+        // Power-of-two bases split digits off with a mask and a shift
+        int bits = DigitArithmetic.powerOfTwoBits(base);
+        boolean columnsFit = shorter > 0 && (double) (base - 1) * (base - 1) * (shorter + 1) < Long.MAX_VALUE;
+        if (columnsFit && VectorKernel.isEnabled()) {
+            // Same columns, several digit products per instruction
+            VectorKernel.columnWise(x, xOffset, xLength, y, yOffset, yLength, base, result, resultOffset);
+        } else if (columnsFit) {
+            long carry = 0;
+            int xLast = xOffset + xLength - 1;
+            int yLast = yOffset + yLength - 1;
+            int resultLast = resultOffset + resultLength - 1;
+            // Column 0 is the last digit of the result, column 1 the one before, etc.
+            for (int column = 0; column < resultLength - 1; column++) {
+                long sum = carry;
+                // Every i with 0 <= i < xLength and 0 <= column - i < yLength
+                int first = Math.max(0, column - (yLength - 1));
+                int last = Math.min(column, xLength - 1);
+                for (int i = first; i <= last; i++) {
+                    sum += (long) x[xLast - i] * y[yLast - (column - i)];
+                }
+                if (bits >= 0) {
+                    result[resultLast - column] = (int) (sum & (base - 1));
+                    carry = sum >>> bits;
+                } else {
+                    result[resultLast - column] = (int) (sum % base);
+                    carry = sum / base;
+                }
+            }
+            result[resultOffset] = (int) carry;
+        } else {
+            // Row by row: result digit + digit product + carry is below base^2
+            Arrays.fill(result, resultOffset, resultOffset + resultLength, 0);
+            for (int i = xLength - 1; i >= 0; i--) {
+                long carry = 0;
+                for (int j = yLength - 1; j >= 0; j--) {
+                    int k = resultOffset + i + j + 1;
+                    long sum = result[k] + (long) x[xOffset + i] * y[yOffset + j] + carry;
+                    if (bits >= 0) {
+                        result[k] = (int) (sum & (base - 1));
+                        carry = sum >>> bits;
+                    } else {
+                        result[k] = (int) (sum % base);
+                        carry = sum / base;
+                    }
+                }
+                result[resultOffset + i] = (int) carry;
+            }
+        }
+    } // method columnWise
+
+    /**
+     * The grade-school algorithm as taught: every digit of one array times every
+     * digit of the other, with the partial products stored row by row and then
+     * added column by column. It takes O(n*m) single-digit operations and as much
+     * memory; multiply uses the linear-memory columnWise instead.
+     * 
+     * @param x    one of the two arrays with the interests to multiply
+     * @param y    the other array with the integer to multiply
+     * @param base the number base of the system (for carry and single digit ops)
+     * @return the product of the two numbers in arrays, also in the form of an
+     *         array.
+     */
+    public static int[] gradeSchool(final int[] x, final int[] y, final int base) {
         // Declare the output array
         int[] result;
         // If one of the input arrays has 0 length, prepare to return [0]
@@ -28,36 +530,37 @@ public class GradeSchoolMultiplication_Solution {
             result = new int[x.length + y.length];
             // Set up a two-dimensional array to capture the partials products
             int[][] partial = new int[x.length][x.length + y.length];
-            // Variable to shift partial product one position to the left as we make our way
-            // through
-            int shiftLeft = 0;
+            // Digit x[i] * y[j] lands in column i + j + 1 of its partial product. That
+            // shifts each partial product one position to the left as we make our way
+            // through x, and it works whether or not x and y have the same length.
             // Declare the loop variables. Usually, we declare them so that they exist only
             // within the for-loop scope. However we want access to, at least j, outside the
             // loop scope, hence the early declaration.
             int i, j;
             // Multiply every digit of one array with every digit of the other array, from
             // back to front.
+            // The products and column sums are longs, so this loop takes any int base,
+            // such as the 10^9 limbs of LargeNumber.
             for (i = x.length - 1; i >= 0; i--) {
-                int carry = 0;
+                long carry = 0;
                 for (j = y.length - 1; j >= 0; j--) {
-                    int product = carry + x[i] * y[j];
-                    partial[i][j + y.length - shiftLeft] = product % base;
+                    long product = carry + (long) x[i] * y[j];
+                    partial[i][i + j + 1] = (int) (product % base);
                     carry = product / base;
                 }
                 // If there at the end of this round, place it to the front of the corresponding
                 // partial product. That's why we need variable j to be available outside the
                 // scope of its loop.
-                partial[i][j + y.length - shiftLeft] = carry;
-                shiftLeft++;
+                partial[i][i + j + 1] = (int) carry;
             }
             // Add the partial products into the result array
-            int carry = 0;
+            long carry = 0;
             for (j = x.length + y.length - 1; j >= 0; j--) {
-                int sum = carry;
+                long sum = carry;
                 for (i = x.length - 1; i >= 0; i--) {
                     sum += partial[i][j];
                 }
-                result[j] = sum % base;
+                result[j] = (int) (sum % base);
                 carry = sum / base;
             }
             // If result has a leading 0, remove it
@@ -71,7 +574,7 @@ public class GradeSchoolMultiplication_Solution {
             // Done!
         }
         return result;
-    } // method multiply
+    } // method gradeSchool
 
     public static int[] multiply(final int[] x, final int[] y) {
         return multiply(x, y, DEFAULT_BASE);
@@ -0,0 +1,212 @@
+/**
+ * Karatsuba multiplication for integers represented as arrays of single digits.
+ *
+ * Each operand is split into a high and a low half, x = x1 * B^h + x0 and
+ * y = y1 * B^h + y0, where B is the base and h is half the length of the longer
+ * operand. Then
+ *
+ * x * y = z2 * B^2h + z1 * B^h + z0
+ *
+ * with z2 = x1 * y1, z0 = x0 * y0 and z1 = (x0 + x1)(y0 + y1) - z2 - z0. That
+ * is three half-size products instead of four, for O(n^1.585) digit operations.
+ * Below the cutoff the recursion drops back to the column-wise grade-school
+ * loop in GradeSchoolMultiplication_Solution.
+ */
+public class KaratsubaMultiplication {
+
+    /** Operand length below which the grade-school loop is faster */
+    public static final int DEFAULT_CUTOFF = 48;
+
+    /** Smallest cutoff the recursion works with, and the one scratch is sized for */
+    private static final int MIN_CUTOFF = 4;
+
+    /**
+     * Current cutoff; both operands must be at least this long to recurse. A
+     * call reads it once and passes it down, so setCutoff from another thread
+     * never changes the dispatch in the middle of a product.
+     */
+    private static volatile int cutoff = DEFAULT_CUTOFF;
+
+    /** Returns the current grade-school cutoff */
+    public static int getCutoff() {
+        return cutoff;
+    } // method getCutoff
+
+    /**
+     * Sets the operand length below which Karatsuba drops back to the grade-school
+     * loop. The sums x0 + x1 and y0 + y1 are one digit longer than the halves, so
+     * the recursion only gets shorter from four digits on.
+     *
+     * @param newCutoff the new cutoff, at least 4
+     */
+    public static void setCutoff(final int newCutoff) {
+        if (newCutoff < MIN_CUTOFF) {
+            throw new IllegalArgumentException("Karatsuba cutoff must be at least 4: " + newCutoff);
+        }
+        cutoff = newCutoff;
+    } // method setCutoff
+
+    /**
+     * Multiplies two integers represented as arrays of digits. Unlike the
+     * grade-school method, the product is not trimmed: it always has exactly
+     * x.length + y.length digits, which keeps the recursive bookkeeping simple.
+     *
+     * @param x    one of the two numbers to multiply
+     * @param y    the other number to multiply
+     * @param base the number base of the system
+     * @return the product, with x.length + y.length digits
+     */
+    public static int[] multiply(final int[] x, final int[] y, final int base) {
+        int[] product = new int[x.length + y.length];
+        int[] scratch = new int[scratchSize(Math.max(x.length, y.length))];
+        if (x == y) {
+            square(x, 0, x.length, base, product, 0, scratch, 0);
+        } else {
+            multiply(x, 0, x.length, y, 0, y.length, base, product, 0, scratch, 0);
+        }
+        return product;
+    } // method multiply
+
+    /**
+     * Returns how many scratch digits the recursion needs for operands of up to
+     * the given length. Every level keeps the two sums, of at most half the
+     * length plus one digit each, and their product; the level below it works on
+     * those sums. The size allows for recursing down to the smallest cutoff, so
+     * it holds whatever the cutoff is when the product runs, at the cost of a
+     * few hundred digits.
+     *
+     * @param longer the length of the longer operand
+     * @return the scratch length for multiply
+     */
+    public static int scratchSize(final int longer) {
+        int size = 0;
+        for (int length = longer; length >= MIN_CUTOFF; length = (length + 1) / 2 + 1) {
+            size += 2 * length + 6;
+        }
+        return size;
+    } // method scratchSize
+
+    /**
+     * The recursion behind multiply, on ranges of arrays so that nothing is
+     * copied or allocated. The product of the xLength digits at xOffset and the
+     * yLength digits at yOffset is written into product at productOffset, all
+     * xLength + yLength digits of it.
+     *
+     * The two outer products fill the product exactly: z2 = x1 * y1 goes in front
+     * and z0 = x0 * y0 goes in the back. Only the middle product z1 needs room
+     * in scratch, together with the sums it multiplies.
+     *
+     * @param x             the array holding one of the numbers to multiply
+     * @param xOffset       where that number starts in x
+     * @param xLength       how many digits it has
+     * @param y             the array holding the other number to multiply
+     * @param yOffset       where that number starts in y
+     * @param yLength       how many digits it has
+     * @param base          the number base of the system
+     * @param product       the array to write the product into; may not overlap
+     *                      x, y or the scratch range
+     * @param productOffset where the product starts in its array
+     * @param scratch       working digits, at least scratchSize(longer) of them
+     *                      from scratchOffset on
+     * @param scratchOffset where the working digits start in scratch
+     */
+    public static void multiply(final int[] x, final int xOffset, final int xLength, final int[] y,
+            final int yOffset, final int yLength, final int base, int[] product, final int productOffset,
+            int[] scratch, final int scratchOffset) {
+        multiply(x, xOffset, xLength, y, yOffset, yLength, base, product, productOffset, scratch, scratchOffset,
+                cutoff);
+    } // method multiply
+
+    /** The recursion behind multiply, with the cutoff read once at the top */
+    private static void multiply(final int[] x, final int xOffset, final int xLength, final int[] y,
+            final int yOffset, final int yLength, final int base, int[] product, final int productOffset,
+            int[] scratch, final int scratchOffset, final int limit) {
+        int shorter = Math.min(xLength, yLength);
+        int longer = Math.max(xLength, yLength);
+        int productLength = xLength + yLength;
+        if (shorter < limit) {
+            GradeSchoolMultiplication_Solution.columnWise(x, xOffset, xLength, y, yOffset, yLength, base, product,
+                    productOffset);
+        } else if (2 * shorter <= longer) {
+            // Cut the longer operand into slices as long as the shorter one. Each
+            // slice product is balanced and is added in at the slice's position.
+            GradeSchoolMultiplication_Solution.multiplyInSlices(x, xOffset, xLength, y, yOffset, yLength, base,
+                    product, productOffset, scratch, scratchOffset, limit, KaratsubaMultiplication::multiply);
+        } else {
+            // Both operands are longer than half, so both high parts are non-empty
+            int half = longer / 2;
+            int x1Length = xLength - half;
+            int y1Length = yLength - half;
+            // z2 = x1 * y1 in front, z0 = x0 * y0 in the back of the product
+            multiply(x, xOffset, x1Length, y, yOffset, y1Length, base, product, productOffset, scratch,
+                    scratchOffset, limit);
+            int z0Offset = productOffset + x1Length + y1Length;
+            multiply(x, xOffset + x1Length, half, y, yOffset + y1Length, half, base, product, z0Offset, scratch,
+                    scratchOffset, limit);
+            // z1 = (x0 + x1)(y0 + y1) - z2 - z0, with the sums and z1 in scratch
+            int xSumLength = Math.max(x1Length, half) + 1;
+            int ySumLength = Math.max(y1Length, half) + 1;
+            int xSum = scratchOffset;
+            int ySum = xSum + xSumLength;
+            int z1 = ySum + ySumLength;
+            int z1Length = xSumLength + ySumLength;
+            DigitArithmetic.add(x, xOffset + x1Length, half, x, xOffset, x1Length, base, scratch, xSum);
+            DigitArithmetic.add(y, yOffset + y1Length, half, y, yOffset, y1Length, base, scratch, ySum);
+            multiply(scratch, xSum, xSumLength, scratch, ySum, ySumLength, base, scratch, z1, scratch,
+                    z1 + z1Length, limit);
+            DigitArithmetic.subtractInPlace(scratch, z1, z1Length, product, z0Offset, 2 * half, base);
+            DigitArithmetic.subtractInPlace(scratch, z1, z1Length, product, productOffset, x1Length + y1Length,
+                    base);
+            // z2 and z0 are already in place; z1 goes in at B^half
+            DigitArithmetic.addInto(product, productOffset, productLength, scratch, z1, z1Length, half, base);
+        }
+    } // method multiply
+
+    /**
+     * Karatsuba squaring, on ranges like multiply: x^2 = z2 * B^2h + z1 * B^h + z0
+     * with z2 = x1^2, z0 = x0^2 and z1 = (x0 + x1)^2 - z2 - z0. All three
+     * sub-products are squares again, and only one sum is needed. The scratch
+     * needs no more room than multiply does.
+     *
+     * @param x             the array holding the number to square
+     * @param xOffset       where that number starts in x
+     * @param xLength       how many digits it has
+     * @param base          the number base of the system
+     * @param product       the array to write the 2 * xLength digits of the
+     *                      square into; may not overlap x or the scratch range
+     * @param productOffset where the square starts in its array
+     * @param scratch       working digits, at least scratchSize(xLength) of them
+     *                      from scratchOffset on
+     * @param scratchOffset where the working digits start in scratch
+     */
+    public static void square(final int[] x, final int xOffset, final int xLength, final int base, int[] product,
+            final int productOffset, int[] scratch, final int scratchOffset) {
+        square(x, xOffset, xLength, base, product, productOffset, scratch, scratchOffset, cutoff);
+    } // method square
+
+    /** The recursion behind square, with the cutoff read once at the top */
+    private static void square(final int[] x, final int xOffset, final int xLength, final int base, int[] product,
+            final int productOffset, int[] scratch, final int scratchOffset, final int limit) {
+        if (xLength < limit) {
+            GradeSchoolMultiplication_Solution.squareColumnWise(x, xOffset, xLength, base, product, productOffset);
+        } else {
+            int half = xLength / 2;
+            int x1Length = xLength - half;
+            // z2 = x1^2 in front, z0 = x0^2 in the back of the product
+            square(x, xOffset, x1Length, base, product, productOffset, scratch, scratchOffset, limit);
+            int z0Offset = productOffset + 2 * x1Length;
+            square(x, xOffset + x1Length, half, base, product, z0Offset, scratch, scratchOffset, limit);
+            // z1 = (x0 + x1)^2 - z2 - z0, with the sum and z1 in scratch
+            int sumLength = x1Length + 1;
+            int sum = scratchOffset;
+            int z1 = sum + sumLength;
+            int z1Length = 2 * sumLength;
+            DigitArithmetic.add(x, xOffset + x1Length, half, x, xOffset, x1Length, base, scratch, sum);
+            square(scratch, sum, sumLength, base, scratch, z1, scratch, z1 + z1Length, limit);
+            DigitArithmetic.subtractInPlace(scratch, z1, z1Length, product, z0Offset, 2 * half, base);
+            DigitArithmetic.subtractInPlace(scratch, z1, z1Length, product, productOffset, 2 * x1Length, base);
+            DigitArithmetic.addInto(product, productOffset, 2 * xLength, scratch, z1, z1Length, half, base);
+        }
+    } // method square
+
+} // class KaratsubaMultiplication
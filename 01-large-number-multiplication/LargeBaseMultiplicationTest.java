@@ -0,0 +1,86 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the recursive tiers in bases above 2^30, where two digits and a carry
+ * no longer fit in an int. Products are compared with BigInteger.
+ */
+public class LargeBaseMultiplicationTest {
+   private static final int[] BASES = { Integer.MAX_VALUE, (1 << 30) + 1, 1 << 30 };
+
+   /** Lengths just below and above the Karatsuba cutoff, and in Toom-3's range */
+   private static final int[] LENGTHS = { 47, 48, 60, 100, 650 };
+
+   private final Random random = new Random(2024);
+
+   private static BigInteger valueOf(int[] digits, int base) {
+      BigInteger value = BigInteger.ZERO;
+      BigInteger b = BigInteger.valueOf(base);
+      for (int digit : digits) {
+         value = value.multiply(b).add(BigInteger.valueOf(digit));
+      }
+      return value;
+   }
+
+   /** Multiplies through the dispatcher and checks the digits and the value */
+   private void assertProduct(int[] x, int[] y, int base) {
+      int[] product = GradeSchoolMultiplication_Solution.multiply(x, y, base);
+      String operands = "base " + base + ", " + x.length + " x " + y.length + " digits";
+      for (int digit : product) {
+         assertTrue(operands + ": digit " + digit + " out of range", digit >= 0 && digit < base);
+      }
+      assertEquals(operands, valueOf(x, base).multiply(valueOf(y, base)), valueOf(product, base));
+   }
+
+   private int[] randomDigits(int length, int base) {
+      int[] digits = new int[length];
+      for (int i = 0; i < length; i++) {
+         digits[i] = random.nextInt(base);
+      }
+      return digits;
+   }
+
+   @Test
+   public void testLargestDigits() {
+      // Digits base - 1 and base - 2 give the largest sums and carries
+      for (int base : BASES) {
+         for (int length : LENGTHS) {
+            int[] x = new int[length];
+            int[] y = new int[length];
+            Arrays.fill(x, base - 1);
+            Arrays.fill(y, base - 2);
+            assertProduct(x, y, base);
+            assertProduct(x, x, base);
+         }
+      }
+   }
+
+   @Test
+   public void testRandomOperands() {
+      for (int base : BASES) {
+         for (int length : LENGTHS) {
+            int[] x = randomDigits(length, base);
+            assertProduct(x, randomDigits(length + random.nextInt(length), base), base);
+            assertProduct(x, x, base);
+         }
+      }
+   }
+
+   @Test
+   public void testUnbalancedOperands() {
+      // The slice loops add each slice product into the whole product
+      for (int base : BASES) {
+         int[] x = new int[3000];
+         Arrays.fill(x, base - 1);
+         assertProduct(x, randomDigits(60, base), base);
+         assertProduct(randomDigits(700, base), x, base);
+      }
+   }
+
+}
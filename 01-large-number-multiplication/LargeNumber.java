@@ -0,0 +1,196 @@
+import java.util.Arrays;
+
+/**
+ * A non-negative integer stored in packed limbs of nine decimal digits each,
+ * i.e., in base 10^9. The single-digit arrays used elsewhere in this folder
+ * spend a whole 32-bit int on a digit that needs four bits. A limb makes full use
+ * of the int, so the same number takes a ninth of the memory and every loop over
+ * it runs a ninth as many times.
+ *
+ * Limbs are stored most significant first, just like digits, so the number
+ * 1234567890123 is the limb array [1234, 567890123]. That lets the limbs go
+ * straight into the multiplication methods as digits of base 10^9.
+ */
+public class LargeNumber {
+
+    // ------------------------------ CONSTANTS ---------------------------------
+
+    /** Decimal digits per limb */
+    public static final int LIMB_DIGITS = 9;
+
+    /** The base of the limbs, 10^LIMB_DIGITS */
+    public static final int LIMB_BASE = 1_000_000_000;
+
+    /** The NTT needs smaller digits than limbs, so limbs are split into three */
+    private static final int NTT_DIGITS_PER_LIMB = 3;
+    private static final int NTT_BASE = 1000;
+
+    private static final int DECIMAL_BASE = 10;
+
+    /** The number zero */
+    public static final LargeNumber ZERO = new LargeNumber(new int[0]);
+
+    /** The limbs, most significant first, without leading zeros; zero has none */
+    private final int[] limbs;
+
+    /**
+     * Creates a number from its limbs. The array is not copied; callers inside
+     * this class hand over arrays that nobody else holds.
+     */
+    private LargeNumber(final int[] limbs) {
+        this.limbs = DigitArithmetic.stripLeadingZeros(limbs);
+    } // constructor
+
+    /**
+     * Creates a number from limbs in base 10^9, most significant first.
+     *
+     * @param limbs the limbs; every limb must be in [0, 10^9)
+     * @return the number
+     */
+    public static LargeNumber fromLimbs(final int[] limbs) {
+        for (int limb : limbs) {
+            if (limb < 0 || limb >= LIMB_BASE) {
+                throw new IllegalArgumentException("Limb out of range: " + limb);
+            }
+        }
+        return new LargeNumber(limbs.clone());
+    } // method fromLimbs
+
+    /**
+     * Packs an array of single decimal digits, the representation used by
+     * GradeSchoolMultiplication_Solution, into limbs. Every nine digits, counted
+     * from the back, become one limb.
+     *
+     * @param digits the decimal digits, most significant first
+     * @return the number
+     */
+    public static LargeNumber fromDigits(final int[] digits) {
+        int[] packed = new int[(digits.length + LIMB_DIGITS - 1) / LIMB_DIGITS];
+        for (int k = 0; k < packed.length; k++) {
+            int end = digits.length - k * LIMB_DIGITS;
+            int start = Math.max(0, end - LIMB_DIGITS);
+            int limb = 0;
+            for (int d = start; d < end; d++) {
+                if (digits[d] < 0 || digits[d] >= DECIMAL_BASE) {
+                    throw new IllegalArgumentException("Not a decimal digit: " + digits[d]);
+                }
+                limb = limb * DECIMAL_BASE + digits[d];
+            }
+            packed[packed.length - 1 - k] = limb;
+        }
+        return new LargeNumber(packed);
+    } // method fromDigits
+
+    /**
+     * Unpacks the limbs back into single decimal digits. Converting with
+     * fromDigits and back is lossless except for leading zeros, which a number
+     * does not keep; zero comes back as [0].
+     *
+     * @return the decimal digits, most significant first
+     */
+    public int[] toDigits() {
+        int[] digits = new int[Math.max(1, this.limbs.length * LIMB_DIGITS)];
+        int d = digits.length - 1;
+        for (int k = this.limbs.length - 1; k >= 0; k--) {
+            int limb = this.limbs[k];
+            for (int j = 0; j < LIMB_DIGITS; j++) {
+                digits[d--] = limb % DECIMAL_BASE;
+                limb /= DECIMAL_BASE;
+            }
+        }
+        // Only the top limb can contribute leading zeros
+        int[] significant = DigitArithmetic.stripLeadingZeros(digits);
+        return (significant.length == 0) ? new int[1] : significant;
+    } // method toDigits
+
+    /** Returns a copy of the limbs, most significant first; zero has none */
+    public int[] toLimbs() {
+        return this.limbs.clone();
+    } // method toLimbs
+
+    /**
+     * Multiplies this number by another one. Grade-school, Karatsuba and Toom-3
+     * work on the limbs directly, as digits of base 10^9. The NTT needs columns
+     * that fit in a long, so for NTT-sized operands each limb is split into three
+     * digits of base 1000 first, and the product is packed back afterwards.
+     *
+     * @param other the number to multiply by
+     * @return this * other
+     */
+    public LargeNumber multiply(final LargeNumber other) {
+        int[] x = this.limbs;
+        int[] y = other.limbs;
+        int[] product;
+        if (x.length == 0 || y.length == 0) {
+            product = new int[0];
+        } else if (Math.min(x.length, y.length) * NTT_DIGITS_PER_LIMB >= NttMultiplication.getCutoff()
+                && NttMultiplication.supports(x.length * NTT_DIGITS_PER_LIMB, y.length * NTT_DIGITS_PER_LIMB,
+                        NTT_BASE)) {
+            product = join(NttMultiplication.multiply(split(x), split(y), NTT_BASE));
+        } else {
+            product = GradeSchoolMultiplication_Solution.multiplyUntrimmed(x, y, LIMB_BASE);
+        }
+        return new LargeNumber(product);
+    } // method multiply
+
+    /** Splits every limb into three digits of base 1000 */
+    private static int[] split(final int[] limbs) {
+        int[] digits = new int[limbs.length * NTT_DIGITS_PER_LIMB];
+        for (int k = 0; k < limbs.length; k++) {
+            int limb = limbs[k];
+            for (int j = NTT_DIGITS_PER_LIMB - 1; j >= 0; j--) {
+                digits[k * NTT_DIGITS_PER_LIMB + j] = limb % NTT_BASE;
+                limb /= NTT_BASE;
+            }
+        }
+        return digits;
+    } // method split
+
+    /** Joins every three digits of base 1000 back into a limb */
+    private static int[] join(final int[] digits) {
+        int[] limbs = new int[digits.length / NTT_DIGITS_PER_LIMB];
+        for (int k = 0; k < limbs.length; k++) {
+            int limb = 0;
+            for (int j = 0; j < NTT_DIGITS_PER_LIMB; j++) {
+                limb = limb * NTT_BASE + digits[k * NTT_DIGITS_PER_LIMB + j];
+            }
+            limbs[k] = limb;
+        }
+        return limbs;
+    } // method join
+
+    @Override
+    public boolean equals(final Object other) {
+        return (other instanceof LargeNumber) && Arrays.equals(this.limbs, ((LargeNumber) other).limbs);
+    } // method equals
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.limbs);
+    } // method hashCode
+
+    /** Returns the number in decimal, e.g., "1234567890123" */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        if (this.limbs.length == 0) {
+            sb.append('0');
+        } else {
+            // Every limb after the first is padded to its nine digits
+            sb.append(this.limbs[0]);
+            for (int k = 1; k < this.limbs.length; k++) {
+                sb.append(String.format("%09d", this.limbs[k]));
+            }
+        }
+        return sb.toString();
+    } // method toString
+
+    public static void main(String[] args) {
+        int[] x = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 0, 1, 2, 3 };
+        int[] y = { 9, 8, 7, 6, 5, 4, 3, 2, 1, 0 };
+        LargeNumber product = fromDigits(x).multiply(fromDigits(y));
+        System.out.println(product);
+        System.out.println(Arrays.toString(product.toDigits()));
+    } // method main
+
+} // class LargeNumber
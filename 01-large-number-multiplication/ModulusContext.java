@@ -0,0 +1,162 @@
+import java.util.Arrays; // for toString() only
+
+/**
+ * Multiplication modulo a fixed m with Barrett reduction, for many products
+ * that share one modulus.
+ *
+ * Reducing z = x * y mod m directly takes a division. Barrett's method replaces
+ * it with multiplications by mu = floor(base^(2k) / m), where m has k digits.
+ * mu is computed once per modulus, here with NewtonDivision. The quotient
+ * floor(z / m) is then estimated as
+ *
+ * q = floor(floor(z / base^(k-1)) * mu / base^(k+1))
+ *
+ * which is never too large and at most 2 too small. So z - q * m is below 3m
+ * and needs at most two subtractions of m. It is computed mod base^(k+2):
+ * base^(k+1) would do for base 3 and up, but in base 2, 3m can reach 2^(k+1)
+ * and the remainder would wrap around. Apart from the product itself, a
+ * reduction costs the two multiplications q1 * mu and q * m and no division.
+ * Dropping low digits is free.
+ *
+ * A context keeps every intermediate array, sized once for its modulus, plus
+ * a MultiplicationWorkspace for the multiplication kernels. So mulMod
+ * allocates nothing once the workspace has grown. For the same reason a
+ * context is not thread-safe: give each thread its own.
+ */
+public class ModulusContext {
+
+    /** The number base of the system */
+    private final int base;
+
+    /** The modulus, without leading zeros */
+    private final int[] modulus;
+
+    /** Number of digits of the modulus */
+    private final int k;
+
+    /**
+     * floor(base^(2k) / m), padded to k + 1 digits; it has k + 2 when m is a
+     * power of the base
+     */
+    private final int[] mu;
+
+    /** x * y, 2k digits */
+    private final int[] product;
+
+    /** The leading k + 1 digits of the product */
+    private final int[] productHigh;
+
+    /** productHigh * mu */
+    private final int[] scaled;
+
+    /** The quotient estimate: scaled without its low k + 1 digits */
+    private final int[] quotient;
+
+    /** quotient * m */
+    private final int[] quotientTimesModulus;
+
+    /** z - q * m mod base^(k+2) */
+    private final int[] remainder;
+
+    /** Scratch memory for the multiplication kernels */
+    private final MultiplicationWorkspace workspace;
+
+    /**
+     * Precomputes the Barrett constant and the working arrays for one modulus.
+     *
+     * @param m    the modulus; must not be zero
+     * @param base the number base of the system
+     */
+    public ModulusContext(final int[] m, final int base) {
+        this.base = base;
+        this.modulus = DigitArithmetic.stripLeadingZeros(m);
+        if (this.modulus.length == 0) {
+            throw new ArithmeticException("Modulus is zero");
+        }
+        this.k = this.modulus.length;
+        int[] power = new int[2 * this.k + 1];
+        power[0] = 1;
+        int[] quotientOfPower = DigitArithmetic.stripLeadingZeros(NewtonDivision.divide(power, this.modulus, base));
+        this.mu = DigitArithmetic.padTo(quotientOfPower, Math.max(this.k + 1, quotientOfPower.length));
+        this.product = new int[2 * this.k];
+        this.productHigh = new int[this.k + 1];
+        this.scaled = new int[this.k + 1 + this.mu.length];
+        this.quotient = new int[this.mu.length];
+        this.quotientTimesModulus = new int[this.mu.length + this.k];
+        this.remainder = new int[this.k + 2];
+        this.workspace = new MultiplicationWorkspace();
+        this.workspace.reserve(this.mu.length, this.mu.length, base);
+    } // constructor
+
+    /** Returns the number of digits every operand of mulMod must have */
+    public int length() {
+        return this.k;
+    } // method length
+
+    /**
+     * Computes x * y mod m into out without allocating.
+     *
+     * @param x   a number below m, padded with leading zeros to length() digits
+     * @param y   another number below m, also length() digits
+     * @param out receives x * y mod m, length() digits; may be x or y
+     */
+    public void mulMod(final int[] x, final int[] y, int[] out) {
+        if (x.length != this.k || y.length != this.k || out.length != this.k) {
+            throw new IllegalArgumentException("Operands and output must have " + this.k + " digits");
+        }
+        int k = this.k;
+        GradeSchoolMultiplication_Solution.multiplyInto(x, y, this.base, this.product, this.workspace);
+        // q1 = floor(z / base^(k-1)), q = floor(q1 * mu / base^(k+1))
+        System.arraycopy(this.product, 0, this.productHigh, 0, k + 1);
+        GradeSchoolMultiplication_Solution.multiplyInto(this.productHigh, this.mu, this.base, this.scaled,
+                this.workspace);
+        System.arraycopy(this.scaled, 0, this.quotient, 0, this.quotient.length);
+        GradeSchoolMultiplication_Solution.multiplyInto(this.quotient, this.modulus, this.base,
+                this.quotientTimesModulus, this.workspace);
+        // r = (z - q * m) mod base^(k+2); only the low k + 2 digits of each matter.
+        // For k = 1 the product has only two digits, and the remainder's first is 0.
+        int fromProduct = Math.min(k + 2, 2 * k);
+        this.remainder[0] = 0;
+        System.arraycopy(this.product, 2 * k - fromProduct, this.remainder, k + 2 - fromProduct, fromProduct);
+        int low = this.quotientTimesModulus.length - (k + 2);
+        DigitArithmetic.subtractInPlace(this.remainder, 0, k + 2, this.quotientTimesModulus, low, k + 2, this.base);
+        // q was at most 2 too small
+        while (DigitArithmetic.compare(this.remainder, this.modulus) >= 0) {
+            DigitArithmetic.subtractInPlace(this.remainder, this.modulus, this.base);
+        }
+        System.arraycopy(this.remainder, 2, out, 0, k);
+    } // method mulMod
+
+    /**
+     * Computes x * y mod m in a new array. Convenient, but it allocates; hot
+     * loops should call mulMod(x, y, out).
+     *
+     * @param x a number below m, any length
+     * @param y another number below m, any length
+     * @return x * y mod m, without leading zeros; zero is [0]
+     */
+    public int[] mulMod(final int[] x, final int[] y) {
+        int[] out = new int[this.k];
+        mulMod(fit(x), fit(y), out);
+        int[] result = DigitArithmetic.stripLeadingZeros(out);
+        return (result.length == 0) ? new int[1] : result;
+    } // method mulMod
+
+    /** Pads a number below m with leading zeros to k digits */
+    private int[] fit(final int[] x) {
+        int[] stripped = DigitArithmetic.stripLeadingZeros(x);
+        if (DigitArithmetic.compare(stripped, this.modulus) >= 0) {
+            throw new IllegalArgumentException("Operand is not below the modulus");
+        }
+        return DigitArithmetic.padTo(stripped, this.k);
+    } // method fit
+
+    /** Demo: 345678 * 987654 mod 1000003 */
+    public static void main(String[] args) {
+        ModulusContext context = new ModulusContext(new int[] { 1, 0, 0, 0, 0, 0, 3 }, 10);
+        int[] x = { 3, 4, 5, 6, 7, 8 };
+        int[] y = { 9, 8, 7, 6, 5, 4 };
+        System.out.println(Arrays.toString(context.mulMod(x, y)));
+    } // method main
+
+} // class ModulusContext
@@ -0,0 +1,107 @@
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks Barrett reduction against BigInteger, in particular in base 2, where
+ * z - q * m can reach base^(k+1) when m is close to 2^k.
+ */
+public class ModulusContextTest {
+   private final Random random = new Random(2024);
+
+   private static BigInteger valueOf(int[] digits, int base) {
+      BigInteger value = BigInteger.ZERO;
+      BigInteger b = BigInteger.valueOf(base);
+      for (int digit : digits) {
+         value = value.multiply(b).add(BigInteger.valueOf(digit));
+      }
+      return value;
+   }
+
+   private static int[] digitsOf(BigInteger value, int base, int length) {
+      int[] digits = new int[length];
+      BigInteger b = BigInteger.valueOf(base);
+      for (int i = length - 1; i >= 0; i--) {
+         BigInteger[] qr = value.divideAndRemainder(b);
+         digits[i] = qr[1].intValue();
+         value = qr[0];
+      }
+      return digits;
+   }
+
+   /** Checks mulMod(x, y, out) for x and y below m */
+   private static void assertMulMod(ModulusContext context, BigInteger m, BigInteger x, BigInteger y, int base) {
+      int k = context.length();
+      int[] out = new int[k];
+      context.mulMod(digitsOf(x, base, k), digitsOf(y, base, k), out);
+      assertEquals("base " + base + ": " + x + " * " + y + " mod " + m, x.multiply(y).mod(m), valueOf(out, base));
+   }
+
+   @Test
+   public void testBase2Example() {
+      // m = 235 has 8 bits; 228 * 229 mod 235 = 42
+      ModulusContext context = new ModulusContext(digitsOf(BigInteger.valueOf(235), 2, 8), 2);
+      assertEquals(BigInteger.valueOf(42),
+            valueOf(context.mulMod(digitsOf(BigInteger.valueOf(228), 2, 8), digitsOf(BigInteger.valueOf(229), 2, 8)),
+                  2));
+   }
+
+   @Test
+   public void testEverySmallBase2Modulus() {
+      // Every modulus of up to 9 bits, with the largest operands below it; with
+      // remainders kept mod 2^(k+1), 13 of these moduli gave wrong products
+      for (int m = 1; m < 1 << 9; m++) {
+         BigInteger modulus = BigInteger.valueOf(m);
+         ModulusContext context = new ModulusContext(digitsOf(modulus, 2, modulus.bitLength()), 2);
+         for (int x = Math.max(0, m - 32); x < m; x++) {
+            for (int y = Math.max(0, m - 32); y < m; y++) {
+               assertMulMod(context, modulus, BigInteger.valueOf(x), BigInteger.valueOf(y), 2);
+            }
+         }
+      }
+   }
+
+   @Test
+   public void testModuliBelowAPowerOfTheBase() {
+      // m = base^k - 1 and just below it, with operands close to m
+      for (int base : new int[] { 2, 3, 10, 1 << 16 }) {
+         for (int k : new int[] { 1, 2, 8, 33, 100 }) {
+            BigInteger power = BigInteger.valueOf(base).pow(k);
+            for (int below = 1; below <= 3; below++) {
+               BigInteger m = power.subtract(BigInteger.valueOf(below));
+               if (m.signum() > 0) {
+                  ModulusContext context = new ModulusContext(digitsOf(m, base, k), base);
+                  for (int trial = 0; trial < 20; trial++) {
+                     BigInteger x = m.subtract(BigInteger.valueOf(1 + random.nextInt(4))).max(BigInteger.ZERO);
+                     BigInteger y = new BigInteger(m.bitLength() + 8, random).mod(m);
+                     assertMulMod(context, m, x, y, base);
+                     assertMulMod(context, m, x, x, base);
+                  }
+               }
+            }
+         }
+      }
+   }
+
+   @Test
+   public void testRandomModuli() {
+      for (int base : new int[] { 2, 3, 4, 10, 1000, 1 << 30, Integer.MAX_VALUE }) {
+         for (int k : new int[] { 1, 5, 60, 200 }) {
+            // k digits exactly: base^(k-1) <= m < base^k
+            BigInteger smallest = BigInteger.valueOf(base).pow(k - 1);
+            BigInteger range = smallest.multiply(BigInteger.valueOf(base - 1));
+            BigInteger m = smallest.add(new BigInteger(range.bitLength() + 8, random).mod(range));
+            ModulusContext context = new ModulusContext(digitsOf(m, base, k), base);
+            for (int trial = 0; trial < 20; trial++) {
+               BigInteger x = new BigInteger(m.bitLength() + 8, random).mod(m);
+               BigInteger y = new BigInteger(m.bitLength() + 8, random).mod(m);
+               assertMulMod(context, m, x, y, base);
+            }
+         }
+      }
+   }
+
+}
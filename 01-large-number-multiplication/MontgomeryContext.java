@@ -0,0 +1,412 @@
+import java.math.BigInteger; // for the comparison in main() only
+import java.util.Arrays; // for copyOf() and fill() only
+import java.util.Random;
+
+/**
+ * Modular exponentiation a^e mod m with Montgomery multiplication, for many
+ * exponentiations with the same odd modulus.
+ *
+ * Reducing a product mod m normally takes a division. Montgomery's trick keeps
+ * every number in the form x * R mod m, with R = LIMB_BASE^n one limb more than
+ * fits m. Then x * y * R^-1 mod m only needs multiples of m that clear the
+ * product's low limbs one at a time, plus a shift by n limbs. Dividing by a
+ * power of the base is free. The extra factor R^-1 keeps the results in the
+ * same form, so an exponentiation converts into the form once and back once.
+ *
+ * The numbers are packed into 28-bit limbs, i.e., base 2^28, most significant
+ * first like every digit array in this folder. Montgomery needs a modulus
+ * coprime to the base, and any odd modulus is coprime to a power of two. 28
+ * bits rather than 30 leave room in a long for 127 limb products plus a carry,
+ * so the column-wise kernel can sum a column in a long. That covers Karatsuba's
+ * base cases.
+ *
+ * Two multiply-reduce kernels share the work:
+ *
+ * - For general products of short operands, a fused loop (CIOS, "coarsely
+ * integrated operand scanning") adds x[i] * y and u * m into the column sums
+ * for each limb of x, so the double-length product is never stored by itself.
+ *
+ * - Squares, and every product of operands of at least cutoff limbs, are
+ * computed by GradeSchoolMultiplication_Solution.multiplyInto, which uses the
+ * symmetric squaring, column-wise and Karatsuba kernels. The reduction then
+ * runs over the double-length product.
+ *
+ * The exponent is scanned with a sliding window: runs of zero bits cost one
+ * squaring per bit, and each window of up to w bits that ends in a 1 costs one
+ * multiplication by a precomputed odd power a^1, a^3, ..., a^(2^w - 1).
+ *
+ * A context only reads its fields after construction, so several threads can
+ * use one context at the same time.
+ */
+public class MontgomeryContext {
+
+    // ------------------------------ CONSTANTS ---------------------------------
+
+    /** Bits per limb */
+    public static final int LIMB_BITS = 28;
+
+    /** The base of the limbs */
+    public static final int LIMB_BASE = 1 << LIMB_BITS;
+
+    private static final long LIMB_MASK = LIMB_BASE - 1;
+
+    /** Limbs from which general products also go through multiplyInto */
+    public static final int DEFAULT_CUTOFF = 32;
+
+    /** Current cutoff for general products */
+    private static volatile int cutoff = DEFAULT_CUTOFF;
+
+    /**
+     * Rows of limb products a column can take before its long must be carried:
+     * 120 * (2^28 - 1)^2, plus a limb and a carry, stays below 2^63
+     */
+    private static final int ROWS_BETWEEN_CARRIES = 120;
+
+    /** Exponent bit lengths at which the window grows to 2, 3, ... bits */
+    private static final int[] WINDOW_THRESHOLDS = { 7, 25, 81, 241, 673, 1793 };
+
+    /** The base the caller's digits are in */
+    private final int base;
+
+    /** The modulus in limbs, most significant first */
+    private final int[] modulus;
+
+    /** The same limbs, least significant first, for the reduction loops */
+    private final int[] lowFirstModulus;
+
+    /** Number of limbs of the modulus, and of every number in Montgomery form */
+    private final int n;
+
+    /** -m^-1 mod LIMB_BASE: the multiple of m that clears the lowest limb */
+    private final long inverse;
+
+    /** R^2 mod m, which turns x into x * R mod m with one Montgomery product */
+    private final int[] rSquared;
+
+    /** Returns the current cutoff */
+    public static int getCutoff() {
+        return cutoff;
+    } // method getCutoff
+
+    /**
+     * Sets the limb count from which general products are computed with
+     * multiplyInto and reduced afterwards, instead of by the fused loop.
+     *
+     * @param newCutoff the new cutoff, at least 1
+     */
+    public static void setCutoff(final int newCutoff) {
+        if (newCutoff < 1) {
+            throw new IllegalArgumentException("Montgomery cutoff must be at least 1: " + newCutoff);
+        }
+        cutoff = newCutoff;
+    } // method setCutoff
+
+    /**
+     * Prepares Montgomery arithmetic modulo m.
+     *
+     * @param m    the modulus in the given base; must be odd
+     * @param base the number base of m and of every number passed to modPow
+     */
+    public MontgomeryContext(final int[] m, final int base) {
+        this.base = base;
+        this.modulus = DigitArithmetic.stripLeadingZeros(RadixConversion.convert(m, base, LIMB_BASE));
+        if (this.modulus.length == 0 || (this.modulus[this.modulus.length - 1] & 1) == 0) {
+            throw new IllegalArgumentException("Montgomery reduction needs an odd modulus");
+        }
+        this.n = this.modulus.length;
+        this.lowFirstModulus = new int[this.n];
+        for (int j = 0; j < this.n; j++) {
+            this.lowFirstModulus[j] = this.modulus[this.n - 1 - j];
+        }
+        // Newton's iteration for m^-1 mod 2^k doubles the number of correct bits;
+        // m * m = 1 mod 8 for odd m, so m itself is correct to 3 bits
+        long low = this.modulus[this.n - 1];
+        long x = low;
+        for (int bits = 3; bits < LIMB_BITS; bits *= 2) {
+            x = (x * (2 - low * x)) & LIMB_MASK;
+        }
+        this.inverse = (-x) & LIMB_MASK;
+        int[] r2 = new int[2 * this.n + 1];
+        r2[0] = 1;
+        this.rSquared = fit(NewtonDivision.mod(r2, this.modulus, LIMB_BASE));
+    } // constructor
+
+    /**
+     * Computes a^e mod m with one modulus-sized product per exponent bit, plus
+     * one per window.
+     *
+     * @param a        the base of the power, in the context's number base
+     * @param exponent the exponent, in the context's number base
+     * @return a^e mod m in the context's number base, without leading zeros
+     */
+    public int[] modPow(final int[] a, final int[] exponent) {
+        int[] bits = DigitArithmetic.stripLeadingZeros(RadixConversion.convert(exponent, this.base, LIMB_BASE));
+        int bitLength = (bits.length == 0) ? 0
+                : (bits.length - 1) * LIMB_BITS + (Integer.SIZE - Integer.numberOfLeadingZeros(bits[0]));
+        Scratch scratch = new Scratch(this.n);
+        // a * R mod m
+        int[] aLimbs = DigitArithmetic.stripLeadingZeros(RadixConversion.convert(a, this.base, LIMB_BASE));
+        if (DigitArithmetic.compare(aLimbs, this.modulus) >= 0) {
+            aLimbs = NewtonDivision.mod(aLimbs, this.modulus, LIMB_BASE);
+        }
+        int[] power = new int[this.n];
+        multiply(fit(aLimbs), this.rSquared, power, scratch);
+        // Odd powers a, a^3, ..., a^(2^w - 1), each one a^2 times the one before
+        int window = 1;
+        while (window <= WINDOW_THRESHOLDS.length && bitLength > WINDOW_THRESHOLDS[window - 1]) {
+            window++;
+        }
+        int[][] oddPowers = new int[1 << (window - 1)][];
+        oddPowers[0] = power;
+        int[] squared = new int[this.n];
+        multiply(power, power, squared, scratch);
+        for (int k = 1; k < oddPowers.length; k++) {
+            oddPowers[k] = new int[this.n];
+            multiply(oddPowers[k - 1], squared, oddPowers[k], scratch);
+        }
+        // Scan the exponent from its top bit; result stays null while it is 1
+        int[] result = null;
+        int[] spare = new int[this.n];
+        int i = bitLength - 1;
+        while (i >= 0) {
+            if (!testBit(bits, i)) {
+                multiply(result, result, spare, scratch);
+                int[] swap = result;
+                result = spare;
+                spare = swap;
+                i--;
+            } else {
+                // The longest window of at most w bits starting at i that ends in a 1
+                int j = Math.max(0, i - window + 1);
+                while (!testBit(bits, j)) {
+                    j++;
+                }
+                int value = 0;
+                for (int k = i; k >= j; k--) {
+                    value = 2 * value + (testBit(bits, k) ? 1 : 0);
+                }
+                if (result == null) {
+                    result = oddPowers[value >> 1].clone();
+                } else {
+                    for (int k = i; k >= j; k--) {
+                        multiply(result, result, spare, scratch);
+                        int[] swap = result;
+                        result = spare;
+                        spare = swap;
+                    }
+                    multiply(result, oddPowers[value >> 1], spare, scratch);
+                    int[] swap = result;
+                    result = spare;
+                    spare = swap;
+                }
+                i = j - 1;
+            }
+        }
+        int[] plain;
+        if (result == null) {
+            // a^0 = 1, which is 0 mod 1
+            plain = (this.n == 1 && this.modulus[0] == 1) ? new int[0] : new int[] { 1 };
+        } else {
+            // x * R * 1 / R = x
+            int[] one = new int[this.n];
+            one[this.n - 1] = 1;
+            plain = new int[this.n];
+            multiply(result, one, plain, scratch);
+        }
+        return RadixConversion.convert(plain, LIMB_BASE, this.base);
+    } // method modPow
+
+    /**
+     * Computes a^e mod m once. For many powers with the same modulus, create a
+     * context and reuse it.
+     *
+     * @param a        the base of the power
+     * @param exponent the exponent
+     * @param m        the modulus; must be odd
+     * @param base     the number base of all three
+     * @return a^e mod m, without leading zeros
+     */
+    public static int[] modPow(final int[] a, final int[] exponent, final int[] m, final int base) {
+        return new MontgomeryContext(m, base).modPow(a, exponent);
+    } // method modPow
+
+    /** Returns bit i of the limbs, counting from the least significant bit */
+    private static boolean testBit(final int[] limbs, final int i) {
+        return ((limbs[limbs.length - 1 - i / LIMB_BITS] >>> (i % LIMB_BITS)) & 1) != 0;
+    } // method testBit
+
+    /** Pads limbs below m with leading zeros to exactly n limbs */
+    private int[] fit(final int[] limbs) {
+        int[] stripped = DigitArithmetic.stripLeadingZeros(limbs);
+        return DigitArithmetic.padTo(stripped, this.n);
+    } // method fit
+
+    /**
+     * Montgomery product: out = x * y / R mod m, for x and y below m with n limbs
+     * each. out must not be x or y.
+     */
+    private void multiply(final int[] x, final int[] y, int[] out, final Scratch scratch) {
+        long[] sums = scratch.sums;
+        if (x != y && this.n < cutoff) {
+            fusedMultiply(x, y, sums, scratch.reversed);
+        } else {
+            GradeSchoolMultiplication_Solution.multiplyInto(x, y, LIMB_BASE, scratch.product);
+            // Copy the 2n limbs of the product into the sums, lowest limb first
+            int last = 2 * this.n - 1;
+            for (int k = 0; k <= last; k++) {
+                sums[k] = scratch.product[last - k];
+            }
+            sums[2 * this.n] = 0;
+            reduce(sums);
+        }
+        finish(sums, out);
+    } // method multiply
+
+    /**
+     * Fused multiply-reduce: row i adds x[i] * y and then u * m, where u makes
+     * column i divisible by LIMB_BASE. Its carry moves up into column i + 1.
+     * Column i is then zero, so after n rows columns n to 2n hold x * y / R,
+     * below 2m.
+     */
+    private void fusedMultiply(final int[] x, final int[] y, long[] sums, int[] reversed) {
+        int n = this.n;
+        int[] m = this.lowFirstModulus;
+        // The inner loops run forwards over y, lowest limb first
+        for (int j = 0; j < n; j++) {
+            reversed[j] = y[n - 1 - j];
+        }
+        Arrays.fill(sums, 0, 2 * n + 1, 0);
+        for (int i = 0; i < n; i++) {
+            long xi = x[n - 1 - i];
+            for (int j = 0; j < n; j++) {
+                sums[i + j] += xi * reversed[j];
+            }
+            long u = (sums[i] * this.inverse) & LIMB_MASK;
+            for (int j = 0; j < n; j++) {
+                sums[i + j] += u * m[j];
+            }
+            sums[i + 1] += sums[i] >>> LIMB_BITS;
+            // Two limb products per row and column; keep the columns in a long
+            if ((i + 1) % (ROWS_BETWEEN_CARRIES / 2) == 0) {
+                carry(sums, i + 1, 2 * n);
+            }
+        }
+    } // method fusedMultiply
+
+    /**
+     * Montgomery reduction of the 2n-limb product in sums, lowest limb first:
+     * row i adds u * m so that column i becomes divisible by LIMB_BASE.
+     */
+    private void reduce(long[] sums) {
+        int n = this.n;
+        int[] m = this.lowFirstModulus;
+        for (int i = 0; i < n; i++) {
+            long u = (sums[i] * this.inverse) & LIMB_MASK;
+            for (int j = 0; j < n; j++) {
+                sums[i + j] += u * m[j];
+            }
+            sums[i + 1] += sums[i] >>> LIMB_BITS;
+            if ((i + 1) % ROWS_BETWEEN_CARRIES == 0) {
+                carry(sums, i + 1, 2 * n);
+            }
+        }
+    } // method reduce
+
+    /**
+     * Moves the carries of sums[from .. top - 1] up, leaving every one of those
+     * columns a single limb; the last carry is added to sums[top].
+     */
+    private static void carry(long[] sums, final int from, final int top) {
+        long carry = 0;
+        for (int k = from; k < top; k++) {
+            long sum = sums[k] + carry;
+            sums[k] = sum & LIMB_MASK;
+            carry = sum >>> LIMB_BITS;
+        }
+        sums[top] += carry;
+    } // method carry
+
+    /**
+     * Carries columns n to 2n of a reduction into limbs, subtracts m if the value
+     * is at least m, and stores the n limbs in out, most significant first.
+     */
+    private void finish(long[] sums, int[] out) {
+        int n = this.n;
+        int[] m = this.lowFirstModulus;
+        carry(sums, n, 2 * n);
+        int comparison = (sums[2 * n] != 0) ? 1 : 0;
+        for (int j = n - 1; j >= 0 && comparison == 0; j--) {
+            comparison = Long.compare(sums[n + j], m[j]);
+        }
+        long borrow = 0;
+        for (int j = 0; j < n; j++) {
+            long difference = sums[n + j] - ((comparison >= 0) ? m[j] : 0) - borrow;
+            borrow = (difference < 0) ? 1 : 0;
+            out[n - 1 - j] = (int) (difference + (borrow << LIMB_BITS));
+        }
+    } // method finish
+
+    /** Working memory for one modPow, so that the products allocate nothing */
+    private static class Scratch {
+        /** Column sums of a reduction, lowest column first */
+        final long[] sums;
+        /** The product from multiplyInto, most significant limb first */
+        final int[] product;
+        /** One operand of the fused loop, lowest limb first */
+        final int[] reversed;
+
+        Scratch(final int n) {
+            this.sums = new long[2 * n + 1];
+            this.product = new int[2 * n];
+            this.reversed = new int[n];
+        } // constructor
+    } // class Scratch
+
+    /**
+     * Throughput against BigInteger.modPow for full-size bases and exponents at
+     * 2048, 4096 and 8192 bits.
+     */
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        for (int bits : new int[] { 2048, 4096, 8192 }) {
+            BigInteger m = new BigInteger(bits, random).setBit(bits - 1).setBit(0);
+            BigInteger a = new BigInteger(bits, random).mod(m);
+            BigInteger e = new BigInteger(bits, random);
+            int decimalBase = 10;
+            MontgomeryContext context = new MontgomeryContext(digits(m, decimalBase), decimalBase);
+            int[] aDigits = digits(a, decimalBase);
+            int[] eDigits = digits(e, decimalBase);
+            if (!Arrays.equals(context.modPow(aDigits, eDigits), digits(a.modPow(e, m), decimalBase))) {
+                throw new IllegalStateException("modPow differs from BigInteger at " + bits + " bits");
+            }
+            int rounds = Math.max(4, (1 << 28) / bits / bits);
+            // The first pass warms up the JIT
+            for (int pass = 0; pass < 2; pass++) {
+                long start = System.nanoTime();
+                for (int r = 0; r < rounds; r++) {
+                    context.modPow(aDigits, eDigits);
+                }
+                double ours = rounds / ((System.nanoTime() - start) / 1e9);
+                start = System.nanoTime();
+                for (int r = 0; r < rounds; r++) {
+                    a.modPow(e, m);
+                }
+                double theirs = rounds / ((System.nanoTime() - start) / 1e9);
+                if (pass == 1) {
+                    System.out.printf("%5d bits: %8.1f modPow/s, BigInteger %8.1f modPow/s%n", bits, ours, theirs);
+                }
+            }
+        }
+    } // method main
+
+    /** The decimal digits of a BigInteger, for main() */
+    private static int[] digits(final BigInteger value, final int base) {
+        String text = value.toString(base);
+        int[] result = new int[text.length()];
+        for (int k = 0; k < text.length(); k++) {
+            result[k] = Character.digit(text.charAt(k), base);
+        }
+        return result;
+    } // method digits
+
+} // class MontgomeryContext
@@ -0,0 +1,410 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark suite for the multiplication methods, with java.math.BigInteger as
+ * the reference.
+ *
+ * Every case is one method, one base, one shape and one operand length. The
+ * shape is either balanced, two operands of n digits, or unbalanced, n digits
+ * times n/16. A case runs the way a JMH benchmark does. One cold call sizes the
+ * work. Calls then repeat for a warmup period, so the JIT compiles the hot
+ * loops, and then for several timed iterations. Each iteration runs as many
+ * calls as fill its time. Results go to a blackhole field so the JIT cannot drop
+ * them.
+ *
+ * For each case the suite reports the mean time per call, its standard deviation
+ * over the iterations, and the bytes the calling thread allocated per call.
+ * Allocations by fork/join workers are not counted. It also reports the
+ * allocation rate. The results print as a table and can be exported as JSON to
+ * compare runs over time. Unlike JMH, all cases share one JVM, so a warmup that
+ * is too short lets JIT compilation leak into the first cases, most of all on
+ * machines with few cores.
+ *
+ * Sizes that would take too long are skipped. Every method has a growth
+ * exponent, for example 2 for the grade-school loop. A size is only run if
+ * the measured time per call of the previous size, scaled by that exponent or
+ * by the faster growth seen between the two sizes before, stays under the
+ * per-call limit. Methods that leave the cache grow faster than their
+ * exponent: the grade-school loop's n x 2n table takes it to about n^3 from
+ * 1000 to 3000 digits. Bytes per call are predicted the same way, and a size
+ * whose calls would allocate more than half the heap is skipped as well. If
+ * the cold call of a size still takes longer than the limit, it is reported
+ * on its own, without warmup or iterations, and the larger sizes are
+ * skipped. Methods whose precondition fails (EasyMultiplications needs the
+ * product to fit in an int, the NTT needs its columns to fit) are skipped too.
+ *
+ * Usage: java MultiplicationBenchmark [--sizes=10,100] [--bases=10,65536]
+ * [--shapes=balanced,unbalanced] [--methods=ntt,bigInteger] [--warmup-ms=500]
+ * [--iteration-ms=200] [--iterations=5] [--max-call-ms=2000] [--json=file]
+ */
+public class MultiplicationBenchmark {
+
+    // ------------------------------ CONSTANTS ---------------------------------
+
+    /** Operand lengths measured by default, 10 to 10^7 digits */
+    private static final int[] DEFAULT_SIZES = { 10, 100, 1000, 10000, 100000, 1000000, 10000000 };
+
+    /** Bases measured by default */
+    private static final int[] DEFAULT_BASES = { 2, 10, 1 << 16 };
+
+    /** The longer operand is this many times the shorter in the unbalanced shape */
+    private static final int UNBALANCED_RATIO = 16;
+
+    /** Seed for the random operands, so every run measures the same numbers */
+    private static final long SEED = 271;
+
+    /** Sink for results, so the JIT cannot drop the calls */
+    private static volatile Object blackhole;
+
+    /** Measurement settings, from the command line */
+    private long warmupNanos = 500_000_000L;
+    private long iterationNanos = 200_000_000L;
+    private int iterations = 5;
+    private long maxCallNanos = 2_000_000_000L;
+
+    /** Allocation counter for the current thread, or null if the JVM has none */
+    private final com.sun.management.ThreadMXBean allocations = allocationCounter();
+
+    /**
+     * One method under test. prepare turns the digit operands into whatever the
+     * method takes and returns the call to time.
+     */
+    private static class Method {
+        private final String name;
+        private final double exponent;
+        private final Preparer preparer;
+
+        Method(final String name, final double exponent, final Preparer preparer) {
+            this.name = name;
+            this.exponent = exponent;
+            this.preparer = preparer;
+        } // constructor
+    } // class Method
+
+    /** Turns two operands into a call, or null if the method cannot take them */
+    private interface Preparer {
+        Supplier<Object> prepare(int[] x, int[] y, int base);
+    } // interface Preparer
+
+    /** One row of results */
+    private static class Result {
+        private String method;
+        private int base;
+        private String shape;
+        private int xLength;
+        private int yLength;
+        private double nanosPerCall;
+        private double nanosStdDev;
+        private double bytesPerCall;
+        private long calls;
+    } // class Result
+
+    /** The methods under test, in the order they are reported */
+    private static List<Method> methods() {
+        List<Method> methods = new ArrayList<>();
+        methods.add(new Method("multiply", 1.1,
+                (x, y, base) -> () -> GradeSchoolMultiplication_Solution.multiply(x, y, base)));
+        methods.add(new Method("easy", 1.0, MultiplicationBenchmark::prepareEasy));
+        methods.add(new Method("gradeSchool", 2.0,
+                (x, y, base) -> () -> GradeSchoolMultiplication_Solution.gradeSchool(x, y, base)));
+        methods.add(new Method("columnWise", 2.0,
+                (x, y, base) -> () -> GradeSchoolMultiplication_Solution.columnWise(x, y, base)));
+        if (VectorKernel.isAvailable()) {
+            methods.add(new Method("columnWiseScalar", 2.0, (x, y, base) -> () -> {
+                VectorKernel.setEnabled(false);
+                try {
+                    return GradeSchoolMultiplication_Solution.columnWise(x, y, base);
+                } finally {
+                    VectorKernel.setEnabled(true);
+                }
+            }));
+        }
+        methods.add(new Method("karatsuba", 1.585,
+                (x, y, base) -> () -> KaratsubaMultiplication.multiply(x, y, base)));
+        methods.add(new Method("toom3", 1.465, (x, y, base) -> () -> ToomCookMultiplication.multiply(x, y, base)));
+        methods.add(new Method("ntt", 1.1, (x, y, base) -> NttMultiplication.supports(x.length, y.length, base)
+                ? () -> NttMultiplication.multiply(x, y, base)
+                : null));
+        methods.add(new Method("parallel", 1.1,
+                (x, y, base) -> () -> ParallelMultiplication.multiply(x, y, base)));
+        methods.add(new Method("bigInteger", 1.47, MultiplicationBenchmark::prepareBigInteger));
+        return methods;
+    } // method methods
+
+    /** Converts to ints and back, which only works while the product fits in an int */
+    private static Supplier<Object> prepareEasy(final int[] x, final int[] y, final int base) {
+        double bits = (x.length + y.length) * Math.log(base) / Math.log(2);
+        return (bits > 31) ? null
+                : () -> EasyMultiplications.convertToArray(
+                        EasyMultiplications.convertToScalar(x, base) * EasyMultiplications.convertToScalar(y, base),
+                        base);
+    } // method prepareEasy
+
+    /**
+     * Multiplies random BigIntegers with as many bits as the digit operands, so
+     * the conversion stays out of the timing.
+     */
+    private static Supplier<Object> prepareBigInteger(final int[] x, final int[] y, final int base) {
+        Random random = new Random(SEED);
+        double bitsPerDigit = Math.log(base) / Math.log(2);
+        BigInteger bx = new BigInteger((int) Math.ceil(x.length * bitsPerDigit), random).setBit(0);
+        BigInteger by = new BigInteger((int) Math.ceil(y.length * bitsPerDigit), random).setBit(0);
+        return () -> bx.multiply(by);
+    } // method prepareBigInteger
+
+    /** Returns the allocation counter if the JVM supports one */
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        com.sun.management.ThreadMXBean counter = null;
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            counter = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if (!counter.isThreadAllocatedMemorySupported()) {
+                counter = null;
+            } else {
+                counter.setThreadAllocatedMemoryEnabled(true);
+            }
+        }
+        return counter;
+    } // method allocationCounter
+
+    /** Returns the bytes the current thread allocated so far, or 0 */
+    private long allocatedBytes() {
+        return (this.allocations == null) ? 0 : this.allocations.getCurrentThreadAllocatedBytes();
+    } // method allocatedBytes
+
+    /** Returns random digits, with a nonzero leading digit */
+    private static int[] randomDigits(final int length, final int base, final Random random) {
+        int[] digits = new int[length];
+        for (int k = 0; k < length; k++) {
+            digits[k] = random.nextInt(base);
+        }
+        digits[0] = 1 + random.nextInt(base - 1);
+        return digits;
+    } // method randomDigits
+
+    /**
+     * Runs one case: a cold call, the warmup, then the timed iterations. A cold
+     * call over the per-call limit is the whole measurement.
+     *
+     * @return the measurements, in nanoseconds and bytes per call
+     */
+    private Result measure(final Supplier<Object> call) {
+        Result result = new Result();
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        blackhole = call.get();
+        long callNanos = Math.max(1, System.nanoTime() - start);
+        if (callNanos > this.maxCallNanos) {
+            result.nanosPerCall = callNanos;
+            result.nanosStdDev = Double.NaN;
+            result.bytesPerCall = (this.allocations == null) ? Double.NaN
+                    : (double) (allocatedBytes() - allocatedBefore);
+            result.calls = 1;
+        } else {
+            // Warm up for the set time, or for a single call if that is longer
+            long warmupEnd = System.nanoTime() + this.warmupNanos;
+            int warmupCalls = 0;
+            start = System.nanoTime();
+            while (warmupCalls == 0 || System.nanoTime() < warmupEnd) {
+                blackhole = call.get();
+                warmupCalls++;
+            }
+            callNanos = Math.max(1, (System.nanoTime() - start) / warmupCalls);
+            long batch = Math.max(1, this.iterationNanos / callNanos);
+            double[] nanos = new double[this.iterations];
+            long bytes = 0;
+            for (int i = 0; i < this.iterations; i++) {
+                allocatedBefore = allocatedBytes();
+                start = System.nanoTime();
+                for (long k = 0; k < batch; k++) {
+                    blackhole = call.get();
+                }
+                nanos[i] = (double) (System.nanoTime() - start) / batch;
+                bytes += allocatedBytes() - allocatedBefore;
+            }
+            double mean = 0;
+            for (double value : nanos) {
+                mean += value / nanos.length;
+            }
+            double variance = 0;
+            for (double value : nanos) {
+                variance += (value - mean) * (value - mean) / Math.max(1, nanos.length - 1);
+            }
+            result.nanosPerCall = mean;
+            result.nanosStdDev = Math.sqrt(variance);
+            result.bytesPerCall = (this.allocations == null) ? Double.NaN
+                    : (double) bytes / (batch * this.iterations);
+            result.calls = batch * this.iterations;
+        }
+        return result;
+    } // method measure
+
+    /** Runs every selected case and prints each result as it comes */
+    private List<Result> run(final List<Method> methods, final int[] sizes, final int[] bases, final String[] shapes) {
+        List<Result> results = new ArrayList<>();
+        System.out.printf("%-17s %8s %-10s %9s %9s %15s %12s %14s %10s%n", "method", "base", "shape", "x digits",
+                "y digits", "ns/op", "+-", "bytes/op", "MB/s");
+        for (Method method : methods) {
+            for (int base : bases) {
+                for (String shape : shapes) {
+                    // Results of the last two sizes run, to predict the next one
+                    Result last = null;
+                    Result beforeLast = null;
+                    for (int size : sizes) {
+                        if (last != null) {
+                            // Scale the steady-state time and bytes of the last size
+                            double timeExponent = method.exponent;
+                            double byteExponent = 1;
+                            if (beforeLast != null) {
+                                timeExponent = Math.max(timeExponent, growth(beforeLast.xLength,
+                                        beforeLast.nanosPerCall, last.xLength, last.nanosPerCall));
+                                byteExponent = Math.max(byteExponent, growth(beforeLast.xLength,
+                                        beforeLast.bytesPerCall, last.xLength, last.bytesPerCall));
+                            }
+                            double ratio = (double) size / last.xLength;
+                            double predictedNanos = last.nanosPerCall * Math.pow(ratio, timeExponent);
+                            double predictedBytes = last.bytesPerCall * Math.pow(ratio, byteExponent);
+                            // Without an allocation counter the bytes are NaN and never skip
+                            if (last.calls == 1 || predictedNanos > this.maxCallNanos
+                                    || predictedBytes > Runtime.getRuntime().maxMemory() / 2) {
+                                break;
+                            }
+                        }
+                        int yLength = shape.equals("balanced") ? size : Math.max(1, size / UNBALANCED_RATIO);
+                        Random random = new Random(SEED);
+                        int[] x = randomDigits(size, base, random);
+                        int[] y = randomDigits(yLength, base, random);
+                        Supplier<Object> call = method.preparer.prepare(x, y, base);
+                        if (call != null) {
+                            Result result = measure(call);
+                            result.method = method.name;
+                            result.base = base;
+                            result.shape = shape;
+                            result.xLength = size;
+                            result.yLength = yLength;
+                            results.add(result);
+                            print(result);
+                            beforeLast = last;
+                            last = result;
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    } // method run
+
+    /**
+     * Returns the exponent e with which a measurement grew between two sizes,
+     * value ~ size^e, or 0 if either value is not positive.
+     */
+    private static double growth(final int sizeBefore, final double valueBefore, final int sizeAfter,
+            final double valueAfter) {
+        double exponent = 0;
+        if (valueBefore > 0 && valueAfter > 0) {
+            exponent = Math.log(valueAfter / valueBefore) / Math.log((double) sizeAfter / sizeBefore);
+        }
+        return exponent;
+    } // method growth
+
+    /** Prints one row of the table */
+    private static void print(final Result r) {
+        System.out.printf("%-17s %8d %-10s %9d %9d %15.1f %12.1f %14.1f %10.1f%n", r.method, r.base, r.shape,
+                r.xLength, r.yLength, r.nanosPerCall, r.nanosStdDev, r.bytesPerCall,
+                r.bytesPerCall / r.nanosPerCall * 1000);
+    } // method print
+
+    /** Writes the results and a description of the machine as JSON */
+    private static void writeJson(final List<Result> results, final Path file) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"timestamp\": \"").append(Instant.now()).append("\",\n");
+        json.append("  \"javaVersion\": \"").append(System.getProperty("java.version")).append("\",\n");
+        json.append("  \"vm\": \"").append(System.getProperty("java.vm.name")).append("\",\n");
+        json.append("  \"os\": \"").append(System.getProperty("os.name")).append("\",\n");
+        json.append("  \"arch\": \"").append(System.getProperty("os.arch")).append("\",\n");
+        json.append("  \"processors\": ").append(Runtime.getRuntime().availableProcessors()).append(",\n");
+        json.append("  \"vectorKernel\": ").append(VectorKernel.isEnabled()).append(",\n");
+        json.append("  \"results\": [");
+        for (int k = 0; k < results.size(); k++) {
+            Result r = results.get(k);
+            json.append((k == 0) ? "\n" : ",\n");
+            json.append("    {\"method\": \"").append(r.method).append("\", \"base\": ").append(r.base)
+                    .append(", \"shape\": \"").append(r.shape).append("\", \"xLength\": ").append(r.xLength)
+                    .append(", \"yLength\": ").append(r.yLength).append(", \"nsPerOp\": ")
+                    .append(number(r.nanosPerCall)).append(", \"nsPerOpStdDev\": ").append(number(r.nanosStdDev))
+                    .append(", \"bytesPerOp\": ").append(number(r.bytesPerCall)).append(", \"allocMBPerSec\": ")
+                    .append(number(r.bytesPerCall / r.nanosPerCall * 1000)).append(", \"ops\": ").append(r.calls)
+                    .append("}");
+        }
+        json.append("\n  ]\n}\n");
+        Files.writeString(file, json);
+    } // method writeJson
+
+    /** A JSON number, or null for NaN */
+    private static String number(final double value) {
+        return Double.isNaN(value) ? "null" : String.format("%.1f", value);
+    } // method number
+
+    /** Parses a comma-separated list of ints */
+    private static int[] parseInts(final String list) {
+        String[] parts = list.split(",");
+        int[] values = new int[parts.length];
+        for (int k = 0; k < parts.length; k++) {
+            values[k] = Integer.parseInt(parts[k].trim());
+        }
+        return values;
+    } // method parseInts
+
+    /** Runs the suite; see the class comment for the options */
+    public static void main(String[] args) throws IOException {
+        MultiplicationBenchmark benchmark = new MultiplicationBenchmark();
+        int[] sizes = DEFAULT_SIZES;
+        int[] bases = DEFAULT_BASES;
+        String[] shapes = { "balanced", "unbalanced" };
+        List<Method> methods = methods();
+        Path json = null;
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            String option = (equals < 0) ? arg : arg.substring(0, equals);
+            String value = (equals < 0) ? "" : arg.substring(equals + 1);
+            if (option.equals("--sizes")) {
+                sizes = parseInts(value);
+            } else if (option.equals("--bases")) {
+                bases = parseInts(value);
+            } else if (option.equals("--shapes")) {
+                shapes = value.split(",");
+            } else if (option.equals("--methods")) {
+                List<String> names = List.of(value.split(","));
+                methods.removeIf(method -> !names.contains(method.name));
+            } else if (option.equals("--warmup-ms")) {
+                benchmark.warmupNanos = Long.parseLong(value) * 1_000_000L;
+            } else if (option.equals("--iteration-ms")) {
+                benchmark.iterationNanos = Long.parseLong(value) * 1_000_000L;
+            } else if (option.equals("--iterations")) {
+                benchmark.iterations = Integer.parseInt(value);
+            } else if (option.equals("--max-call-ms")) {
+                benchmark.maxCallNanos = Long.parseLong(value) * 1_000_000L;
+            } else if (option.equals("--json")) {
+                json = Paths.get(value);
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        List<Result> results = benchmark.run(methods, sizes, bases, shapes);
+        if (json != null) {
+            writeJson(results, json);
+            System.out.println("Results written to " + json);
+        }
+    } // method main
+
+} // class MultiplicationBenchmark
@@ -0,0 +1,201 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays; // for sort() and equals() only
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A connection to a MultiplicationServer, and a load generator for it.
+ *
+ * multiply sends one request and waits for its product, so a client carries
+ * one request at a time; threads that multiply at once need a client each.
+ *
+ * main is a closed-loop load generator: each of its connections sends a
+ * request, waits for the product and sends the next, and the tool reports the
+ * throughput and latency percentiles. Without --port it starts a server in
+ * the same process and also reports how the server coalesced the requests.
+ */
+public class MultiplicationClient implements AutoCloseable {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    /**
+     * Connects to a server.
+     *
+     * @param host the server's host name or address
+     * @param port the server's port
+     * @throws IOException if the connection fails
+     */
+    public MultiplicationClient(final String host, final int port) throws IOException {
+        this.socket = new Socket(host, port);
+        this.socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(this.socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(this.socket.getOutputStream()));
+    } // constructor
+
+    /**
+     * Multiplies two numbers on the server.
+     *
+     * @param x    the first number to multiply, most significant digit first
+     * @param y    the second number to multiply
+     * @param base the number base of both numbers
+     * @return the product, without its leading zero like multiply returns it
+     * @throws IllegalArgumentException if the server rejects the request
+     * @throws IOException              if the connection fails
+     */
+    public int[] multiply(final int[] x, final int[] y, final int base) throws IOException {
+        this.out.writeInt(base);
+        MultiplicationServer.writeDigits(this.out, x);
+        MultiplicationServer.writeDigits(this.out, y);
+        this.out.flush();
+        int status = this.in.readInt();
+        int[] result;
+        if (status == MultiplicationServer.OK) {
+            result = MultiplicationServer.readDigits(this.in);
+        } else if (status == MultiplicationServer.ERROR) {
+            throw new IllegalArgumentException(this.in.readUTF());
+        } else {
+            throw new IOException("Unknown response status: " + status);
+        }
+        return result;
+    } // method multiply
+
+    @Override
+    public void close() throws IOException {
+        this.socket.close();
+    } // method close
+
+    /**
+     * Sends requests over one connection in a closed loop.
+     *
+     * @return the latency of each request in nanoseconds
+     */
+    private static long[] load(final String host, final int port, final int requests, final int digits,
+            final int base, final long seed) throws IOException {
+        Random random = new Random(seed);
+        long[] latencies = new long[requests];
+        try (MultiplicationClient client = new MultiplicationClient(host, port)) {
+            for (int r = 0; r < requests; r++) {
+                int[] x = new int[digits];
+                int[] y = new int[digits];
+                for (int k = 0; k < digits; k++) {
+                    x[k] = random.nextInt(base);
+                    y[k] = random.nextInt(base);
+                }
+                long start = System.nanoTime();
+                int[] product = client.multiply(x, y, base);
+                latencies[r] = System.nanoTime() - start;
+                if (r == 0 && !Arrays.equals(product, GradeSchoolMultiplication_Solution.multiply(x, y, base))) {
+                    throw new IllegalStateException("Server product differs");
+                }
+            }
+        }
+        return latencies;
+    } // method load
+
+    /** Returns the latency below which a fraction of the sorted latencies lie, in microseconds */
+    private static double percentile(final long[] sorted, final double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e3;
+    } // method percentile
+
+    /**
+     * Load generator.
+     *
+     * Usage: java MultiplicationClient [--host=localhost] [--port=N]
+     * [--connections=64] [--requests=2000] [--digits=100] [--base=10]
+     * [--linger=0]
+     *
+     * --requests is per connection. Without --port an in-process server is
+     * started on a free port, with --linger as its linger window in
+     * microseconds.
+     */
+    public static void main(String[] args) throws Exception {
+        String host = "localhost";
+        int port = 0;
+        int connections = 64;
+        int requests = 2000;
+        int digits = 100;
+        int base = 10;
+        long linger = 0;
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            String option = (equals < 0) ? arg : arg.substring(0, equals);
+            String value = (equals < 0) ? "" : arg.substring(equals + 1);
+            if (option.equals("--host")) {
+                host = value;
+            } else if (option.equals("--port")) {
+                port = Integer.parseInt(value);
+            } else if (option.equals("--connections")) {
+                connections = Integer.parseInt(value);
+            } else if (option.equals("--requests")) {
+                requests = Integer.parseInt(value);
+            } else if (option.equals("--digits")) {
+                digits = Integer.parseInt(value);
+            } else if (option.equals("--base")) {
+                base = Integer.parseInt(value);
+            } else if (option.equals("--linger")) {
+                linger = Long.parseLong(value);
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        MultiplicationServer server = null;
+        if (port == 0) {
+            server = new MultiplicationServer(0, linger);
+            port = server.port();
+        }
+        long[] all = new long[connections * requests];
+        double seconds = 0;
+        ExecutorService executor = MultiplicationServer.newThreadPerTaskExecutor();
+        try {
+            // The first pass warms up the JIT on both ends
+            for (int pass = 0; pass < 2; pass++) {
+                long batches = (server == null) ? 0 : server.batches();
+                long batched = (server == null) ? 0 : server.batchedRequests();
+                List<Future<long[]>> futures = new ArrayList<>();
+                long start = System.nanoTime();
+                for (int c = 0; c < connections; c++) {
+                    final String h = host;
+                    final int p = port;
+                    final int n = requests;
+                    final int d = digits;
+                    final int b = base;
+                    final long seed = 31L * pass + c;
+                    futures.add(executor.submit(() -> load(h, p, n, d, b, seed)));
+                }
+                for (int c = 0; c < connections; c++) {
+                    System.arraycopy(futures.get(c).get(), 0, all, c * requests, requests);
+                }
+                seconds = (System.nanoTime() - start) / 1e9;
+                if (pass == 1 && server != null) {
+                    long count = server.batches() - batches;
+                    System.out.printf("In-process server, %s threads: %d batches, %.1f requests per batch%n",
+                            MultiplicationServer.usesVirtualThreads() ? "virtual" : "platform", count,
+                            (server.batchedRequests() - batched) / (double) Math.max(1, count));
+                }
+            }
+        } finally {
+            executor.shutdown();
+            if (server != null) {
+                server.close();
+            }
+        }
+        Arrays.sort(all);
+        System.out.printf("%d connections x %d requests of %d x %d digits: %.0f requests/s%n", connections,
+                requests, digits, digits, all.length / seconds);
+        System.out.printf("latency us: p50 %.0f, p90 %.0f, p99 %.0f, p99.9 %.0f, max %.0f%n",
+                percentile(all, 0.5), percentile(all, 0.9), percentile(all, 0.99), percentile(all, 0.999),
+                all[all.length - 1] / 1e3);
+    } // method main
+
+} // class MultiplicationClient
@@ -0,0 +1,498 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves multiplications to other processes on the same host over a local TCP
+ * socket.
+ *
+ * The protocol is binary, with every number a big-endian int. A request is
+ *
+ * base, xLength, x[0] ... x[xLength - 1], yLength, y[0] ... y[yLength - 1]
+ *
+ * with the digits most significant first, as everywhere in this folder. The
+ * response is a status of 0 followed by the product as length and digits, the
+ * way multiply returns it, or a status of 1 followed by an error message in
+ * DataOutput.writeUTF form. A connection can carry any number of requests, one
+ * after the other. MultiplicationClient speaks the protocol.
+ *
+ * Each connection has a thread of its own that reads a request, waits for the
+ * product and writes it back. On JDK 21 and later those are virtual threads,
+ * so thousands of connections cost little. Like VectorKernel, the server looks
+ * the virtual thread executor up at run time, so this class still compiles
+ * and runs on older JDKs, with a platform thread per connection.
+ *
+ * Small requests are coalesced. Their connection threads put them in a queue,
+ * and one batching thread takes whatever has queued up, groups it by base and
+ * multiplies each group with BatchMultiplication.multiplyAll. While a batch
+ * runs, the next one queues up, so batches grow with the load. Large requests
+ * are worth a core of their own and are multiplied on their connection
+ * thread.
+ *
+ * By default no request waits for a timer, and on one core that coalesces
+ * little. With the load generator's products of 100 by 100 digits in a closed
+ * loop, batches averaged 3 requests at 32 connections and 6 at 256, with p50
+ * latencies of 2.6 and 25 ms. Those latencies are the core's throughput
+ * shared among the connections, not the cost of the thread handoffs. A linger
+ * window makes the batcher wait up to that long for a batch of fewer than 16
+ * requests to fill. At 200 microseconds the batches grew to 15 and 66
+ * requests at about the same latencies, but a lone client's p50 went from 106
+ * to 392 microseconds. So the window is off unless a constructor argument or
+ * --linger sets it; it pays only when many clients keep the queue busy.
+ */
+public class MultiplicationServer implements AutoCloseable {
+
+    // ------------------------------ CONSTANTS ---------------------------------
+
+    /** Status of a response that carries a product */
+    static final int OK = 0;
+
+    /** Status of a response that carries an error message */
+    static final int ERROR = 1;
+
+    /** Products of at most this many digit pairs are coalesced */
+    public static final long SMALL_PRODUCT = 1L << 22;
+
+    /** Most requests in one batch */
+    private static final int MAX_BATCH = 4096;
+
+    /** A lingering batcher stops waiting once a batch has this many requests */
+    private static final int LINGER_BATCH = 16;
+
+    /** How often a request waiting for its batch checks that the batcher still runs */
+    private static final long BATCHER_CHECK_MILLIS = 100;
+
+    /** Longest operand accepted, so a bad length cannot exhaust the heap */
+    public static final int MAX_DIGITS = 1 << 26;
+
+    /** Executors.newVirtualThreadPerTaskExecutor, or null before JDK 21 */
+    private static final MethodHandle VIRTUAL_EXECUTOR = load();
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final Thread acceptor;
+    private final Thread batcher;
+
+    /** Nanoseconds the batcher waits for a small batch to fill, 0 for none */
+    private final long lingerNanos;
+
+    /** Open client sockets, closed with the server */
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+
+    /** Small requests waiting for the batcher */
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+
+    /** Batches run and requests in them, for the load generator's report */
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batched = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /** Looks up the virtual thread executor */
+    private static MethodHandle load() {
+        MethodHandle factory = null;
+        try {
+            factory = MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor",
+                    MethodType.methodType(ExecutorService.class));
+        } catch (ReflectiveOperationException e) {
+            // Before JDK 21
+            factory = null;
+        }
+        return factory;
+    } // method load
+
+    /** Returns true if connections get virtual threads */
+    public static boolean usesVirtualThreads() {
+        return VIRTUAL_EXECUTOR != null;
+    } // method usesVirtualThreads
+
+    /**
+     * Returns an executor that starts a thread per task: a virtual thread where
+     * the JDK has them, a platform thread otherwise.
+     */
+    static ExecutorService newThreadPerTaskExecutor() {
+        ExecutorService executor;
+        if (VIRTUAL_EXECUTOR == null) {
+            executor = Executors.newCachedThreadPool();
+        } else {
+            try {
+                executor = (ExecutorService) VIRTUAL_EXECUTOR.invokeExact();
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                // The factory declares no checked exceptions
+                throw new IllegalStateException(e);
+            }
+        }
+        return executor;
+    } // method newThreadPerTaskExecutor
+
+    /**
+     * Starts a server on the loopback interface that batches whatever has
+     * queued up, without waiting.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public MultiplicationServer(final int port) throws IOException {
+        this(port, 0);
+    } // constructor
+
+    /**
+     * Starts a server on the loopback interface whose batcher waits up to a
+     * linger window for small batches to fill.
+     *
+     * @param port         the port to listen on, or 0 for any free port
+     * @param lingerMicros how long a batch of fewer than 16 requests waits for
+     *                     more, or 0 not to wait
+     * @throws IOException if the port cannot be bound
+     */
+    public MultiplicationServer(final int port, final long lingerMicros) throws IOException {
+        if (lingerMicros < 0) {
+            throw new IllegalArgumentException("Linger window must not be negative: " + lingerMicros);
+        }
+        this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(lingerMicros);
+        this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        this.connections = newThreadPerTaskExecutor();
+        this.batcher = new Thread(this::batch, "multiplication-batcher");
+        this.batcher.setDaemon(true);
+        this.batcher.start();
+        this.acceptor = new Thread(this::accept, "multiplication-acceptor");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    } // constructor
+
+    /** Returns the port the server listens on */
+    public int port() {
+        return this.serverSocket.getLocalPort();
+    } // method port
+
+    /** Returns the number of batches the batcher has run */
+    public long batches() {
+        return this.batches.get();
+    } // method batches
+
+    /** Returns the number of requests that went through batches */
+    public long batchedRequests() {
+        return this.batched.get();
+    } // method batchedRequests
+
+    /** Stops accepting, closes every connection and stops the threads */
+    @Override
+    public void close() throws IOException {
+        this.closed = true;
+        this.serverSocket.close();
+        for (Socket client : this.clients) {
+            client.close();
+        }
+        this.batcher.interrupt();
+        this.connections.shutdownNow();
+        failQueued(new IllegalStateException("Server closed"));
+    } // method close
+
+    /** The acceptor thread: one connection thread per client */
+    private void accept() {
+        while (!this.closed) {
+            try {
+                Socket client = this.serverSocket.accept();
+                client.setTcpNoDelay(true);
+                this.clients.add(client);
+                this.connections.execute(() -> serve(client));
+            } catch (IOException e) {
+                // Closed, or a client that went away while connecting
+                if (this.closed) {
+                    break;
+                }
+            }
+        }
+    } // method accept
+
+    /** A connection thread: answers requests until the client closes */
+    private void serve(final Socket client) {
+        try (client;
+                DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(client.getOutputStream()))) {
+            while (true) {
+                int base;
+                try {
+                    base = in.readInt();
+                } catch (EOFException e) {
+                    // The client is done
+                    break;
+                }
+                int[] x = readDigits(in);
+                int[] y = readDigits(in);
+                String error = check(x, y, base);
+                if (error == null) {
+                    int[] product;
+                    try {
+                        product = multiply(x, y, base);
+                    } catch (RuntimeException e) {
+                        product = null;
+                        error = e.toString();
+                    }
+                    if (product != null) {
+                        out.writeInt(OK);
+                        writeDigits(out, product);
+                    }
+                }
+                if (error != null) {
+                    out.writeInt(ERROR);
+                    out.writeUTF(error);
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The client went away, or a length was out of range; either way
+            // the connection is done
+        } finally {
+            this.clients.remove(client);
+        }
+    } // method serve
+
+    /**
+     * Multiplies small products in a batch and large ones right here. Should
+     * the batcher have stopped, small ones are multiplied here as well.
+     */
+    private int[] multiply(final int[] x, final int[] y, final int base) {
+        int[] product;
+        if ((long) x.length * y.length > SMALL_PRODUCT || !this.batcher.isAlive()) {
+            product = GradeSchoolMultiplication_Solution.multiply(x, y, base);
+        } else {
+            Pending pending = new Pending(x, y, base);
+            this.queue.add(pending);
+            product = await(pending);
+        }
+        return product;
+    } // method multiply
+
+    /**
+     * Waits for the batch of a request. The wait is in rounds, and after each
+     * one the request checks that the batcher still runs, so no request waits
+     * forever for a batcher that has died.
+     */
+    private int[] await(final Pending pending) {
+        int[] product = null;
+        try {
+            while (product == null) {
+                try {
+                    product = pending.product.get(BATCHER_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    if (!this.batcher.isAlive()) {
+                        // Unless the batch completed it in the meantime, the next get throws
+                        pending.product.completeExceptionally(new IllegalStateException("Batcher stopped"));
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the batch");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch failed: " + e.getCause());
+        }
+        return product;
+    } // method await
+
+    /**
+     * The batcher thread: takes what has queued up and multiplies it. A batch
+     * that fails, even with an Error such as OutOfMemoryError, fails its
+     * requests and not the thread, so later requests still get batched.
+     */
+    private void batch() {
+        List<Pending> taken = new ArrayList<>();
+        while (!this.closed) {
+            try {
+                taken.add(this.queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            try {
+                this.queue.drainTo(taken, MAX_BATCH - 1);
+                linger(taken);
+                Map<Integer, List<Pending>> byBase = new HashMap<>();
+                for (Pending pending : taken) {
+                    byBase.computeIfAbsent(pending.base, b -> new ArrayList<>()).add(pending);
+                }
+                for (Map.Entry<Integer, List<Pending>> group : byBase.entrySet()) {
+                    run(group.getValue(), group.getKey());
+                }
+                this.batches.incrementAndGet();
+                this.batched.addAndGet(taken.size());
+            } catch (Throwable e) {
+                // Grouping failed before every group ran; requests already done stay done
+                for (Pending pending : taken) {
+                    pending.product.completeExceptionally(e);
+                }
+            } finally {
+                taken.clear();
+            }
+        }
+        failQueued(new IllegalStateException("Batcher stopped"));
+    } // method batch
+
+    /**
+     * Waits up to the linger window for more requests while the batch is
+     * smaller than LINGER_BATCH.
+     */
+    private void linger(final List<Pending> taken) {
+        long deadline = System.nanoTime() + this.lingerNanos;
+        long left = this.lingerNanos;
+        while (taken.size() < LINGER_BATCH && left > 0) {
+            Pending more;
+            try {
+                more = this.queue.poll(left, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                // Closing: run what there is, and the loop ends
+                Thread.currentThread().interrupt();
+                more = null;
+            }
+            if (more == null) {
+                left = 0;
+            } else {
+                taken.add(more);
+                this.queue.drainTo(taken, MAX_BATCH - taken.size());
+                left = deadline - System.nanoTime();
+            }
+        }
+    } // method linger
+
+    /** Multiplies one batch of the same base and hands out the products */
+    private static void run(final List<Pending> group, final int base) {
+        try {
+            int[][] xs = new int[group.size()][];
+            int[][] ys = new int[group.size()][];
+            for (int i = 0; i < xs.length; i++) {
+                xs[i] = group.get(i).x;
+                ys[i] = group.get(i).y;
+            }
+            int[][] products = BatchMultiplication.multiplyAll(xs, ys, base);
+            for (int i = 0; i < products.length; i++) {
+                group.get(i).product.complete(products[i]);
+            }
+        } catch (Throwable e) {
+            // Most likely an OutOfMemoryError on a large batch
+            for (Pending pending : group) {
+                pending.product.completeExceptionally(e);
+            }
+        }
+    } // method run
+
+    /** Fails every request still in the queue */
+    private void failQueued(final Throwable cause) {
+        for (Pending pending = this.queue.poll(); pending != null; pending = this.queue.poll()) {
+            pending.product.completeExceptionally(cause);
+        }
+    } // method failQueued
+
+    /** Returns what is wrong with a request, or null if nothing is */
+    private static String check(final int[] x, final int[] y, final int base) {
+        String error = null;
+        if (base < 2) {
+            error = "Base must be at least 2: " + base;
+        } else if (!digitsBelow(x, base) || !digitsBelow(y, base)) {
+            error = "Digits must be from 0 to " + (base - 1);
+        }
+        return error;
+    } // method check
+
+    /** Returns true if every digit is in [0, base) */
+    private static boolean digitsBelow(final int[] digits, final int base) {
+        boolean result = true;
+        for (int k = 0; k < digits.length && result; k++) {
+            result = digits[k] >= 0 && digits[k] < base;
+        }
+        return result;
+    } // method digitsBelow
+
+    /**
+     * Reads a length and that many digits.
+     *
+     * @throws IOException if the stream ends or the length is out of range
+     */
+    static int[] readDigits(final DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_DIGITS) {
+            throw new IOException("Digit count out of range: " + length);
+        }
+        int[] digits = new int[length];
+        for (int k = 0; k < length; k++) {
+            digits[k] = in.readInt();
+        }
+        return digits;
+    } // method readDigits
+
+    /** Writes a length and the digits */
+    static void writeDigits(final DataOutputStream out, final int[] digits) throws IOException {
+        out.writeInt(digits.length);
+        for (int digit : digits) {
+            out.writeInt(digit);
+        }
+    } // method writeDigits
+
+    /** A small request waiting for its batch */
+    private static class Pending {
+        private final int[] x;
+        private final int[] y;
+        private final int base;
+        private final CompletableFuture<int[]> product = new CompletableFuture<>();
+
+        Pending(final int[] x, final int[] y, final int base) {
+            this.x = x;
+            this.y = y;
+            this.base = base;
+        } // constructor
+    } // class Pending
+
+    /**
+     * Runs a server until the process is killed.
+     *
+     * Usage: java MultiplicationServer [--port=7311] [--linger=0]
+     *
+     * --linger is the linger window in microseconds.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = 7311;
+        long linger = 0;
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            String option = (equals < 0) ? arg : arg.substring(0, equals);
+            String value = (equals < 0) ? "" : arg.substring(equals + 1);
+            if (option.equals("--port")) {
+                port = Integer.parseInt(value);
+            } else if (option.equals("--linger")) {
+                linger = Long.parseLong(value);
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        MultiplicationServer server = new MultiplicationServer(port, linger);
+        System.out.printf("Listening on %s:%d, %s threads per connection%n",
+                InetAddress.getLoopbackAddress().getHostAddress(), server.port(),
+                usesVirtualThreads() ? "virtual" : "platform");
+        server.acceptor.join();
+    } // method main
+
+} // class MultiplicationServer
@@ -0,0 +1,115 @@
+/**
+ * Reusable working memory for GradeSchoolMultiplication_Solution.multiplyInto.
+ *
+ * The recursive and transform-based methods need temporary arrays: Karatsuba
+ * keeps its sums and middle products in a scratch array, the NTT needs its
+ * packed operands and one transform buffer per prime, and the sparse method
+ * gathers the nonzero digits. A workspace holds these arrays between calls and
+ * only grows them when a larger product comes along, so a loop that keeps
+ * multiplying numbers of similar size stops allocating after its first call.
+ *
+ * A workspace is not thread-safe. Every thread can get its own from
+ * forCurrentThread(), or a caller can create one and pass it explicitly.
+ */
+public final class MultiplicationWorkspace {
+
+    // ------------------------------ CONSTANTS ---------------------------------
+
+    /** Slot for the Karatsuba scratch digits */
+    static final int KARATSUBA = 0;
+
+    /** Slots for the packed NTT operands */
+    static final int NTT_X = 1;
+    static final int NTT_Y = 2;
+
+    /** Slots for the NTT transform buffers: one residue per prime and a spare */
+    static final int NTT_RESIDUE = 3;
+    static final int NTT_RESIDUES = 3;
+    static final int NTT_SPARE = NTT_RESIDUE + NTT_RESIDUES;
+
+    /** Slots for the nonzero digits SparseMultiplication gathers */
+    static final int SPARSE_X = NTT_SPARE + 1;
+    static final int SPARSE_Y = SPARSE_X + 1;
+
+    private static final int SLOTS = SPARSE_Y + 1;
+
+    /** One workspace per thread, created on first use */
+    private static final ThreadLocal<MultiplicationWorkspace> PER_THREAD = ThreadLocal
+            .withInitial(MultiplicationWorkspace::new);
+
+    /** The arrays, by slot; each one only ever grows */
+    private final int[][] buffers = new int[SLOTS][0];
+
+    /** Creates an empty workspace; its arrays grow on first use */
+    public MultiplicationWorkspace() {
+    } // default constructor
+
+    /**
+     * Creates a workspace that is already large enough for products of two
+     * operands of up to maxLength digits in the given base, so that even the
+     * first multiplication does not allocate.
+     *
+     * @param maxLength the length of the longest operand to expect
+     * @param base      the number base of the system
+     */
+    public MultiplicationWorkspace(final int maxLength, final int base) {
+        reserve(maxLength, maxLength, base);
+    } // sizing constructor
+
+    /** Returns the calling thread's workspace */
+    public static MultiplicationWorkspace forCurrentThread() {
+        return PER_THREAD.get();
+    } // method forCurrentThread
+
+    /**
+     * Grows the arrays so that multiplying operands of these lengths in this base
+     * needs no further allocation.
+     *
+     * @param xLength the length of one operand
+     * @param yLength the length of the other operand
+     * @param base    the number base of the system
+     */
+    public void reserve(final int xLength, final int yLength, final int base) {
+        buffer(KARATSUBA, KaratsubaMultiplication.scratchSize(Math.max(xLength, yLength)));
+        buffer(SPARSE_X, 2 * Math.max(xLength, yLength));
+        buffer(SPARSE_Y, 2 * Math.max(xLength, yLength));
+        if (NttMultiplication.supports(xLength, yLength, base)) {
+            NttMultiplication.reserve(xLength, yLength, base, this);
+        }
+    } // method reserve
+
+    /**
+     * Returns how many ints reserve(xLength, yLength, base) makes a workspace
+     * hold, for callers that size their work to a memory budget.
+     *
+     * @param xLength the length of one operand
+     * @param yLength the length of the other operand
+     * @param base    the number base of the system
+     * @return the number of ints in all arrays of such a workspace
+     */
+    public static long footprint(final int xLength, final int yLength, final int base) {
+        // The sparse method gathers at most a position and a value per digit
+        long ints = KaratsubaMultiplication.scratchSize(Math.max(xLength, yLength))
+                + 4L * Math.max(xLength, yLength);
+        if (NttMultiplication.supports(xLength, yLength, base)) {
+            ints += (long) (NTT_SPARE + 1 - NTT_X) * NttMultiplication.bufferLength(xLength, yLength, base);
+        }
+        return ints;
+    } // method footprint
+
+    /**
+     * Returns the array in the given slot, replaced by a larger one first if it is
+     * shorter than minLength. The contents are whatever the last user left.
+     *
+     * @param slot      which array
+     * @param minLength how many ints the caller needs
+     * @return an array of at least minLength ints
+     */
+    int[] buffer(final int slot, final int minLength) {
+        if (this.buffers[slot].length < minLength) {
+            this.buffers[slot] = new int[minLength];
+        }
+        return this.buffers[slot];
+    } // method buffer
+
+} // class MultiplicationWorkspace
@@ -0,0 +1,252 @@
+import java.util.Arrays; // for copyOf() and toString() only
+
+/**
+ * Division with remainder for digit arrays, built on the fast multiplication in
+ * GradeSchoolMultiplication_Solution.
+ *
+ * To divide a by b we first compute the reciprocal of b, that is
+ * floor(base^(2h) / b) for a suitable h, with Newton's iteration
+ * x' = 2x - b * x^2 / base^(2h). Each step doubles the number of correct digits,
+ * so we run it on growing prefixes of b. The step for h digits starts from the
+ * reciprocal of the leading h/2 + 2 digits and costs a few multiplications of
+ * h-digit numbers. The steps get cheaper by half each time, so the whole
+ * reciprocal costs a small multiple of one multiplication. Multiplying a by it
+ * and dropping the low digits estimates the quotient to within a unit or two,
+ * and one more multiplication b * q gives the remainder and fixes the estimate.
+ *
+ * Short divisors and short quotients are cheaper with long division the way it
+ * is done on paper, which also provides the base case of the reciprocal.
+ */
+public class NewtonDivision {
+
+    // ------------------------------ CONSTANTS ---------------------------------
+
+    /** Digits below which long division beats Newton's iteration */
+    public static final int DEFAULT_CUTOFF = 64;
+
+    /** Current cutoff; divisor and quotient must both be at least this long */
+    private static volatile int cutoff = DEFAULT_CUTOFF;
+
+    /** Extra digits of reciprocal, so the quotient estimate is off by at most 2 */
+    private static final int GUARD_DIGITS = 2;
+
+    /** Returns the current cutoff */
+    public static int getCutoff() {
+        return cutoff;
+    } // method getCutoff
+
+    /**
+     * Sets the length below which long division is used. The Newton step for h
+     * digits starts from (h + 4) / 2 digits, which only gets shorter for h > 4.
+     *
+     * @param newCutoff the new cutoff, at least 8
+     */
+    public static void setCutoff(final int newCutoff) {
+        if (newCutoff < 8) {
+            throw new IllegalArgumentException("Newton division cutoff must be at least 8: " + newCutoff);
+        }
+        cutoff = newCutoff;
+    } // method setCutoff
+
+    /**
+     * Divides a by b and returns both the quotient and the remainder.
+     *
+     * @param a    the dividend
+     * @param b    the divisor
+     * @param base the number base of the system
+     * @return { floor(a / b), a mod b }, without leading zeros; zero is [0]
+     * @throws ArithmeticException if b is zero
+     */
+    public static int[][] divideAndRemainder(final int[] a, final int[] b, final int base) {
+        int[] dividend = DigitArithmetic.stripLeadingZeros(a);
+        int[] divisor = DigitArithmetic.stripLeadingZeros(b);
+        if (divisor.length == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        int[][] result;
+        if (DigitArithmetic.compare(dividend, divisor) < 0) {
+            result = new int[][] { new int[0], dividend };
+        } else if (divisor.length == 1) {
+            result = divideByDigit(dividend, divisor[0], base);
+        } else if (Math.min(divisor.length, dividend.length - divisor.length + 1) < cutoff) {
+            result = longDivision(dividend, divisor, base);
+        } else {
+            result = newton(dividend, divisor, base);
+        }
+        for (int k = 0; k < result.length; k++) {
+            result[k] = DigitArithmetic.stripLeadingZeros(result[k]);
+            if (result[k].length == 0) {
+                result[k] = new int[1];
+            }
+        }
+        return result;
+    } // method divideAndRemainder
+
+    /**
+     * Returns floor(a / b).
+     *
+     * @param a    the dividend
+     * @param b    the divisor
+     * @param base the number base of the system
+     * @return the quotient, without leading zeros; zero is [0]
+     * @throws ArithmeticException if b is zero
+     */
+    public static int[] divide(final int[] a, final int[] b, final int base) {
+        return divideAndRemainder(a, b, base)[0];
+    } // method divide
+
+    /**
+     * Returns a mod b.
+     *
+     * @param a    the dividend
+     * @param b    the divisor
+     * @param base the number base of the system
+     * @return the remainder, without leading zeros; zero is [0]
+     * @throws ArithmeticException if b is zero
+     */
+    public static int[] mod(final int[] a, final int[] b, final int base) {
+        return divideAndRemainder(a, b, base)[1];
+    } // method mod
+
+    /** Divides by the reciprocal of b's leading digits; a >= b, both stripped */
+    private static int[][] newton(final int[] a, final int[] b, final int base) {
+        // The quotient has at most a.length - b.length + 1 digits; two more keep
+        // the error of the estimate below 2
+        int h = a.length - b.length + GUARD_DIGITS;
+        // b * base^(h - m) when b is short, or its leading h digits when it is long
+        int[] leading = Arrays.copyOf(b, h);
+        int[] inverse = reciprocal(leading, base);
+        // a / b ~ a * inverse / base^(m + h)
+        int[] scaled = GradeSchoolMultiplication_Solution.multiplyUntrimmed(a, inverse, base);
+        int[] estimate = Arrays.copyOf(scaled, Math.max(0, scaled.length - (b.length + h)));
+        return correct(a, b, estimate, base);
+    } // method newton
+
+    /**
+     * Returns floor(base^(2h) / d) for the h digits of d, whose leading digit is
+     * not 0.
+     */
+    private static int[] reciprocal(final int[] d, final int base) {
+        int h = d.length;
+        int[] power = new int[2 * h + 1];
+        power[0] = 1;
+        int[] result;
+        if (h < cutoff) {
+            result = longDivision(power, d, base)[0];
+        } else {
+            // Start from the reciprocal of the leading l digits, which is good to
+            // about l - 1 digits; one Newton step squares that error
+            int l = (h + 4) / 2;
+            int[] y = reciprocal(Arrays.copyOf(d, l), base);
+            // x = 2y * base^(h - l) - d * y^2 / base^(2l)
+            int[] doubled = Arrays.copyOf(DigitArithmetic.multiplySmall(y, 2, base), y.length + 1 + h - l);
+            int[] dySquared = GradeSchoolMultiplication_Solution.multiplyUntrimmed(d,
+                    GradeSchoolMultiplication_Solution.squareUntrimmed(y, base), base);
+            int[] correction = Arrays.copyOf(dySquared, Math.max(0, dySquared.length - 2 * l));
+            int[] x = (DigitArithmetic.compare(doubled, correction) > 0)
+                    ? DigitArithmetic.subtract(doubled, correction, base)
+                    : new int[0];
+            // The step is off by a few units at most; make it exact
+            result = correct(power, d, DigitArithmetic.stripLeadingZeros(x), base)[0];
+        }
+        return result;
+    } // method reciprocal
+
+    /**
+     * Turns a quotient estimate that is off by a few units into the exact
+     * quotient and remainder of a / b.
+     */
+    private static int[][] correct(final int[] a, final int[] b, final int[] estimate, final int base) {
+        int[] one = { 1 };
+        int[] quotient = estimate;
+        int[] product = DigitArithmetic.stripLeadingZeros(GradeSchoolMultiplication_Solution.multiplyUntrimmed(
+                quotient, b, base));
+        // Estimate too large: step down until q * b <= a
+        while (DigitArithmetic.compare(product, a) > 0) {
+            quotient = DigitArithmetic.subtract(quotient, one, base);
+            DigitArithmetic.subtractInPlace(product, b, base);
+        }
+        int[] remainder = DigitArithmetic.subtract(a, product, base);
+        // Estimate too small: step up until the remainder is below b
+        while (DigitArithmetic.compare(remainder, b) >= 0) {
+            quotient = DigitArithmetic.add(quotient, one, base);
+            DigitArithmetic.subtractInPlace(remainder, b, base);
+        }
+        return new int[][] { DigitArithmetic.stripLeadingZeros(quotient), remainder };
+    } // method correct
+
+    /** Divides by a single digit with one pass of short division */
+    private static int[][] divideByDigit(final int[] a, final int divisor, final int base) {
+        long remainder = 0;
+        for (int k = 0; k < a.length; k++) {
+            remainder = (remainder * base + a[k]) % divisor;
+        }
+        return new int[][] { DigitArithmetic.divideSmall(a, divisor, base), { (int) remainder } };
+    } // method divideByDigit
+
+    /**
+     * Long division: one quotient digit per step, estimated from the leading
+     * digits and then corrected. Takes O((n - m) * m) steps for an n-digit a and
+     * an m-digit b, with m >= 2 and b[0] != 0.
+     */
+    private static int[][] longDivision(final int[] a, final int[] b, final int base) {
+        int m = b.length;
+        // One leading 0, so every step works on a window of m + 1 digits
+        int[] remainder = new int[a.length + 1];
+        System.arraycopy(a, 0, remainder, 1, a.length);
+        int[] quotient = new int[Math.max(1, a.length - m + 1)];
+        double divisorTop = (double) b[0] * base + b[1] + ((m > 2) ? (double) b[2] / base : 0);
+        for (int j = 0; j + m < remainder.length; j++) {
+            // The window remainder[j .. j + m] is below base * b, so the digit is
+            // below base; the estimate from three digits is off by a unit or two
+            double windowTop = ((double) remainder[j] * base + remainder[j + 1]) * base + remainder[j + 2];
+            long digit = Math.min(base - 1, Math.max(0, (long) (windowTop / divisorTop)));
+            // window -= digit * b, with the borrow kept in top
+            long borrow = 0;
+            for (int k = m - 1; k >= 0; k--) {
+                long value = remainder[j + 1 + k] - digit * b[k] - borrow;
+                long low = Math.floorMod(value, (long) base);
+                borrow = (low - value) / base;
+                remainder[j + 1 + k] = (int) low;
+            }
+            long top = remainder[j] - borrow;
+            // Digit too large: add b back
+            while (top < 0) {
+                long carry = 0;
+                for (int k = m - 1; k >= 0; k--) {
+                    long sum = remainder[j + 1 + k] + b[k] + carry;
+                    remainder[j + 1 + k] = (int) (sum % base);
+                    carry = sum / base;
+                }
+                top += carry;
+                digit--;
+            }
+            remainder[j] = (int) top;
+            // Digit too small: subtract b again
+            while (windowAtLeast(remainder, j, b)) {
+                DigitArithmetic.subtractInPlace(remainder, j, m + 1, b, 0, m, base);
+                digit++;
+            }
+            quotient[j] = (int) digit;
+        }
+        return new int[][] { quotient, remainder };
+    } // method longDivision
+
+    /** Returns true if the m + 1 digits of r starting at start are >= b */
+    private static boolean windowAtLeast(final int[] r, final int start, final int[] b) {
+        int comparison = Integer.compare(r[start], 0);
+        for (int k = 0; k < b.length && comparison == 0; k++) {
+            comparison = Integer.compare(r[start + 1 + k], b[k]);
+        }
+        return comparison >= 0;
+    } // method windowAtLeast
+
+    /** Demo: 12345678901234567890 divided by 9876543210 */
+    public static void main(String[] args) {
+        int[] a = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 0 };
+        int[] b = { 9, 8, 7, 6, 5, 4, 3, 2, 1, 0 };
+        int[][] qr = divideAndRemainder(a, b, 10);
+        System.out.println(Arrays.toString(qr[0]) + " remainder " + Arrays.toString(qr[1]));
+    } // method main
+
+} // class NewtonDivision
@@ -0,0 +1,549 @@
+import java.util.Arrays; // for fill() only
+
+/**
+ * Multiplication with the number-theoretic transform (NTT), for operands with
+ * millions of digits.
+ *
+ * A number is a polynomial whose coefficients are its digits, and the product of
+ * two numbers is the product of their polynomials followed by carrying. The NTT
+ * is the Fourier transform done modulo a prime p instead of with complex
+ * numbers, so every step is exact integer arithmetic and there is no rounding to
+ * worry about. It turns the polynomial product into a pointwise product in
+ * O(n log n) steps.
+ *
+ * One prime is not big enough to hold a column of the product, so the product is
+ * computed modulo three primes and the true column values are recovered with the
+ * Chinese remainder theorem (Garner's method). To keep the transforms short,
+ * several digits are packed into each coefficient, as many as the column bound
+ * allows.
+ */
+public class NttMultiplication {
+
+    // ------------------------------ CONSTANTS ---------------------------------
+
+    /** Primes of the form c * 2^k + 1, so they have roots of unity of order 2^k */
+    private static final long[] PRIMES = { 2013265921L, 1811939329L, 469762049L };
+
+    /** A primitive root modulo each of the primes above */
+    private static final long[] PRIMITIVE_ROOTS = { 31L, 13L, 3L };
+
+    /** Garner constants: the inverses of p0 modulo p1 and of p0 * p1 modulo p2 */
+    private static final long INVERSE_P0_MOD_P1 = modPow(PRIMES[0], PRIMES[1] - 2, PRIMES[1]);
+    private static final long INVERSE_P0P1_MOD_P2 = modPow(PRIMES[0] % PRIMES[2] * (PRIMES[1] % PRIMES[2]),
+            PRIMES[2] - 2, PRIMES[2]);
+
+    /** Longest transform every prime supports: 2^26 */
+    public static final int MAX_TRANSFORM_LENGTH = 1 << 26;
+
+    /**
+     * Upper bound for any column of the packed product. Garner's method rebuilds
+     * each column modulo 2^64 in a long, which is exact below 2^63; the bound
+     * leaves room for the carry that is added to the column afterwards.
+     */
+    private static final long COLUMN_BOUND = 1L << 62;
+
+    /**
+     * Operand length from which the dispatcher picks the NTT. Packing digits into
+     * coefficients makes it win early in small bases.
+     */
+    public static final int DEFAULT_CUTOFF = 128;
+
+    /** Current cutoff; the shorter operand must be at least this long */
+    private static volatile int cutoff = DEFAULT_CUTOFF;
+
+    /** Returns the current NTT cutoff */
+    public static int getCutoff() {
+        return cutoff;
+    } // method getCutoff
+
+    /**
+     * Sets the operand length from which the dispatcher picks the NTT.
+     *
+     * @param newCutoff the new cutoff, at least 1
+     */
+    public static void setCutoff(final int newCutoff) {
+        if (newCutoff < 1) {
+            throw new IllegalArgumentException("NTT cutoff must be at least 1: " + newCutoff);
+        }
+        cutoff = newCutoff;
+    } // method setCutoff
+
+    /**
+     * Checks whether the NTT can multiply operands of these lengths in this base.
+     * In very large bases a single column of the product overflows a long, and
+     * very long operands need a longer transform than the primes support. The
+     * dispatcher uses Toom-3 for those.
+     *
+     * @param xLength the length of one operand
+     * @param yLength the length of the other operand
+     * @param base    the number base of the system
+     * @return true if multiply will accept the operands
+     */
+    public static boolean supports(final int xLength, final int yLength, final int base) {
+        int shorter = Math.min(xLength, yLength);
+        boolean supported = (double) (base - 1) * (base - 1) * shorter < COLUMN_BOUND;
+        if (supported) {
+            int digits = digitsPerCoefficient(shorter, base);
+            long coefficients = (xLength + digits - 1) / digits + (yLength + digits - 1) / digits;
+            supported = coefficients <= MAX_TRANSFORM_LENGTH;
+        }
+        return supported;
+    } // method supports
+
+    /**
+     * Multiplies two integers represented as arrays of digits. Like the other fast
+     * methods, the product is not trimmed and has exactly x.length + y.length
+     * digits.
+     *
+     * @param x    one of the two numbers to multiply
+     * @param y    the other number to multiply
+     * @param base the number base of the system
+     * @return the product, with x.length + y.length digits
+     * @throws IllegalArgumentException if the operands are too long for the
+     *                                  transform, even with one digit per
+     *                                  coefficient
+     */
+    public static int[] multiply(final int[] x, final int[] y, final int base) {
+        int[] product = new int[x.length + y.length];
+        multiply(x, y, base, product, new MultiplicationWorkspace());
+        return product;
+    } // method multiply
+
+    /**
+     * Allocation-free form of multiply: writes the x.length + y.length digits of
+     * the product into the front of product, and takes every temporary array from
+     * the workspace.
+     *
+     * @param x         one of the two numbers to multiply
+     * @param y         the other number to multiply
+     * @param base      the number base of the system
+     * @param product   the array to write the product into
+     * @param workspace where the packed operands and transforms live
+     */
+    public static void multiply(final int[] x, final int[] y, final int base, int[] product,
+            final MultiplicationWorkspace workspace) {
+        multiply(x, 0, x.length, y, 0, y.length, base, product, 0, workspace);
+    } // method multiply
+
+    /**
+     * Range form of multiply: multiplies the xLength digits at xOffset by the
+     * yLength digits at yOffset and writes all xLength + yLength digits of the
+     * product into product starting at productOffset.
+     *
+     * @param x             the array holding one of the numbers to multiply
+     * @param xOffset       where that number starts in x
+     * @param xLength       how many digits it has
+     * @param y             the array holding the other number to multiply
+     * @param yOffset       where that number starts in y
+     * @param yLength       how many digits it has
+     * @param base          the number base of the system
+     * @param product       the array to write the product into
+     * @param productOffset where the product starts in its array
+     * @param workspace     where the packed operands and transforms live
+     */
+    public static void multiply(final int[] x, final int xOffset, final int xLength, final int[] y,
+            final int yOffset, final int yLength, final int base, int[] product, final int productOffset,
+            final MultiplicationWorkspace workspace) {
+        int digitsPerCoefficient = digitsPerCoefficient(Math.min(xLength, yLength), base);
+        int xCoefficients = (xLength + digitsPerCoefficient - 1) / digitsPerCoefficient;
+        int yCoefficients = (yLength + digitsPerCoefficient - 1) / digitsPerCoefficient;
+        int length = transformLength(xCoefficients + yCoefficients);
+        reserve(xLength, yLength, base, workspace);
+        int[] xPacked = workspace.buffer(MultiplicationWorkspace.NTT_X, length);
+        pack(x, xOffset, xLength, digitsPerCoefficient, base, xPacked, xCoefficients);
+        // Squaring: one packed operand, and convolve transforms it only once
+        int[] yPacked = xPacked;
+        if (x != y || xOffset != yOffset || xLength != yLength) {
+            yPacked = workspace.buffer(MultiplicationWorkspace.NTT_Y, length);
+            pack(y, yOffset, yLength, digitsPerCoefficient, base, yPacked, yCoefficients);
+        }
+        // One cyclic convolution per prime
+        int[] spare = workspace.buffer(MultiplicationWorkspace.NTT_SPARE, length);
+        int[] residue0 = workspace.buffer(MultiplicationWorkspace.NTT_RESIDUE, length);
+        int[] residue1 = workspace.buffer(MultiplicationWorkspace.NTT_RESIDUE + 1, length);
+        int[] residue2 = workspace.buffer(MultiplicationWorkspace.NTT_RESIDUE + 2, length);
+        convolve(xPacked, xCoefficients, yPacked, yCoefficients, length, 0, residue0, spare);
+        convolve(xPacked, xCoefficients, yPacked, yCoefficients, length, 1, residue1, spare);
+        convolve(xPacked, xCoefficients, yPacked, yCoefficients, length, 2, residue2, spare);
+        unpack(residue0, residue1, residue2, xCoefficients + yCoefficients, digitsPerCoefficient, base, product,
+                productOffset, xLength + yLength);
+    } // method multiply
+
+    /**
+     * The forward transforms of one operand modulo each of the primes, kept so
+     * that PreparedMultiplicand can multiply the operand by many others and
+     * transform only their side. A spectrum fits every other operand whose
+     * product packs the same number of digits per coefficient into a transform of
+     * the same length; spectrumKey tells them apart.
+     */
+    static class Spectrum {
+        private final int operandLength;
+        private final int digitsPerCoefficient;
+        private final int length;
+        private final int[][] values;
+
+        Spectrum(final int operandLength, final int digitsPerCoefficient, final int length,
+                final int[][] values) {
+            this.operandLength = operandLength;
+            this.digitsPerCoefficient = digitsPerCoefficient;
+            this.length = length;
+            this.values = values;
+        } // constructor
+    } // class Spectrum
+
+    /**
+     * Returns a key for the spectrum a product of operands of these lengths
+     * needs: the digits per coefficient in the high half, the transform length in
+     * the low half. The caller has checked supports().
+     *
+     * @param xLength the length of one operand
+     * @param yLength the length of the other operand
+     * @param base    the number base of the system
+     * @return the key; equal keys can share a spectrum of the same operand
+     */
+    static long spectrumKey(final int xLength, final int yLength, final int base) {
+        int digitsPerCoefficient = digitsPerCoefficient(Math.min(xLength, yLength), base);
+        return (long) digitsPerCoefficient << 32 | bufferLength(xLength, yLength, base);
+    } // method spectrumKey
+
+    /**
+     * Packs y and transforms it modulo each prime for the given spectrum key.
+     *
+     * @param y    the operand to prepare
+     * @param key  from spectrumKey, for y and the operands it will be multiplied by
+     * @param base the number base of the system
+     * @return the spectrum of y
+     */
+    static Spectrum spectrum(final int[] y, final long key, final int base) {
+        int digitsPerCoefficient = (int) (key >>> 32);
+        int length = (int) key;
+        int coefficients = (y.length + digitsPerCoefficient - 1) / digitsPerCoefficient;
+        int[][] values = new int[PRIMES.length][length];
+        pack(y, 0, y.length, digitsPerCoefficient, base, values[0], coefficients);
+        for (int prime = 1; prime < PRIMES.length; prime++) {
+            System.arraycopy(values[0], 0, values[prime], 0, coefficients);
+        }
+        for (int prime = 0; prime < PRIMES.length; prime++) {
+            transform(values[prime], length, false, prime);
+        }
+        return new Spectrum(y.length, digitsPerCoefficient, length, values);
+    } // method spectrum
+
+    /**
+     * Multiplies x by the operand behind a spectrum: x is transformed modulo each
+     * prime, multiplied pointwise by the spectrum and transformed back. That is
+     * two transforms per prime instead of three. The spectrum's key must match x.
+     *
+     * @param x         the number to multiply
+     * @param y         the spectrum of the other number
+     * @param base      the number base of the system
+     * @param product   the array to write the x.length + y's length digits of the
+     *                  product into
+     * @param workspace where the packed x and its transforms live
+     */
+    static void multiply(final int[] x, final Spectrum y, final int base, int[] product,
+            final MultiplicationWorkspace workspace) {
+        int digitsPerCoefficient = y.digitsPerCoefficient;
+        int length = y.length;
+        int xCoefficients = (x.length + digitsPerCoefficient - 1) / digitsPerCoefficient;
+        int yCoefficients = (y.operandLength + digitsPerCoefficient - 1) / digitsPerCoefficient;
+        int[] xPacked = workspace.buffer(MultiplicationWorkspace.NTT_X, length);
+        pack(x, 0, x.length, digitsPerCoefficient, base, xPacked, xCoefficients);
+        int[] residue0 = workspace.buffer(MultiplicationWorkspace.NTT_RESIDUE, length);
+        int[] residue1 = workspace.buffer(MultiplicationWorkspace.NTT_RESIDUE + 1, length);
+        int[] residue2 = workspace.buffer(MultiplicationWorkspace.NTT_RESIDUE + 2, length);
+        convolve(xPacked, xCoefficients, y.values[0], length, 0, residue0);
+        convolve(xPacked, xCoefficients, y.values[1], length, 1, residue1);
+        convolve(xPacked, xCoefficients, y.values[2], length, 2, residue2);
+        unpack(residue0, residue1, residue2, xCoefficients + yCoefficients, digitsPerCoefficient, base, product, 0,
+                x.length + y.operandLength);
+    } // method multiply
+
+    /**
+     * Rebuilds each column with Garner's method, carries it in the packed base
+     * and unpacks it into digits, from the back of the product to the front.
+     *
+     * @param residue0      the convolution modulo the first prime
+     * @param residue1      the convolution modulo the second prime
+     * @param residue2      the convolution modulo the third prime
+     * @param coefficients  how many columns the convolution has
+     * @param digitsPerCoefficient digits packed in each coefficient
+     * @param base          the number base of the system
+     * @param product       the array to write the product into
+     * @param productOffset where the product starts in its array
+     * @param productLength the number of digits of the product
+     */
+    private static void unpack(final int[] residue0, final int[] residue1, final int[] residue2,
+            final int coefficients, final int digitsPerCoefficient, final int base, int[] product,
+            final int productOffset, final int productLength) {
+        long packedBase = power(base, digitsPerCoefficient);
+        int d = productOffset + productLength - 1;
+        long carry = 0;
+        // For a power-of-two base the packed base is one too, and masks and shifts do
+        int bits = DigitArithmetic.powerOfTwoBits(base);
+        int packedBits = bits * digitsPerCoefficient;
+        for (int k = 0; k < coefficients && d >= productOffset; k++) {
+            long column = crt(residue0[k], residue1[k], residue2[k]) + carry;
+            if (bits >= 0) {
+                long coefficient = column & (packedBase - 1);
+                carry = column >>> packedBits;
+                for (int j = 0; j < digitsPerCoefficient && d >= productOffset; j++) {
+                    product[d--] = (int) (coefficient & (base - 1));
+                    coefficient >>>= bits;
+                }
+            } else {
+                long coefficient = column % packedBase;
+                carry = column / packedBase;
+                for (int j = 0; j < digitsPerCoefficient && d >= productOffset; j++) {
+                    product[d--] = (int) (coefficient % base);
+                    coefficient /= base;
+                }
+            }
+        }
+        // A shorter last coefficient can leave leading digits untouched
+        while (d >= productOffset) {
+            product[d--] = 0;
+        }
+    } // method unpack
+
+    /**
+     * Grows the workspace so that multiplying operands of these lengths in this
+     * base needs no allocation. The caller has checked supports().
+     *
+     * @param xLength   the length of one operand
+     * @param yLength   the length of the other operand
+     * @param base      the number base of the system
+     * @param workspace the workspace to grow
+     */
+    static void reserve(final int xLength, final int yLength, final int base,
+            final MultiplicationWorkspace workspace) {
+        int length = bufferLength(xLength, yLength, base);
+        for (int slot = MultiplicationWorkspace.NTT_X; slot <= MultiplicationWorkspace.NTT_SPARE; slot++) {
+            workspace.buffer(slot, length);
+        }
+    } // method reserve
+
+    /**
+     * Returns the length of each workspace buffer the transform needs for
+     * operands of these lengths; there is one per slot from NTT_X to NTT_SPARE.
+     */
+    static int bufferLength(final int xLength, final int yLength, final int base) {
+        int digitsPerCoefficient = digitsPerCoefficient(Math.min(xLength, yLength), base);
+        return transformLength((xLength + digitsPerCoefficient - 1) / digitsPerCoefficient
+                + (yLength + digitsPerCoefficient - 1) / digitsPerCoefficient);
+    } // method bufferLength
+
+    /**
+     * Picks how many digits go in each coefficient. Packing more digits makes the
+     * transform shorter, but a column of the product adds up to `shorter` products
+     * of two coefficients and must stay under COLUMN_BOUND. Each coefficient must
+     * also be smaller than every prime.
+     *
+     * @param shorter the length of the shorter operand in digits
+     * @param base    the number base of the system
+     * @return the number of digits per coefficient, at least 1
+     * @throws IllegalArgumentException if even single digits overflow a column
+     */
+    private static int digitsPerCoefficient(final int shorter, final int base) {
+        if ((double) (base - 1) * (base - 1) * shorter >= COLUMN_BOUND) {
+            throw new IllegalArgumentException("Base " + base + " is too large for an NTT of " + shorter + " digits");
+        }
+        int digits = 1;
+        boolean fits = true;
+        while (fits) {
+            long nextBase = power(base, digits + 1);
+            long coefficients = (shorter + digits) / (digits + 1);
+            fits = nextBase < PRIMES[PRIMES.length - 1]
+                    && (double) (nextBase - 1) * (nextBase - 1) * coefficients < COLUMN_BOUND;
+            if (fits) {
+                digits++;
+            }
+        }
+        return digits;
+    } // method digitsPerCoefficient
+
+    /**
+     * Returns the smallest power of two that holds the given number of
+     * coefficients, and checks that the primes support it.
+     */
+    private static int transformLength(final int coefficients) {
+        int length = 1;
+        while (length < coefficients && length < MAX_TRANSFORM_LENGTH) {
+            length <<= 1;
+        }
+        if (length < coefficients) {
+            throw new IllegalArgumentException(
+                    "Product needs " + coefficients + " coefficients; the NTT supports " + MAX_TRANSFORM_LENGTH);
+        }
+        return length;
+    } // method transformLength
+
+    /** Returns base^exponent; the callers keep it well within a long */
+    private static long power(final int base, final int exponent) {
+        long result = 1;
+        for (int k = 0; k < exponent; k++) {
+            result *= base;
+        }
+        return result;
+    } // method power
+
+    /**
+     * Packs the length digits at offset, most significant digit first, into the
+     * first `coefficients` entries of packed as coefficients of
+     * base^digitsPerCoefficient, least significant coefficient first.
+     */
+    private static void pack(final int[] digits, final int offset, final int length, final int digitsPerCoefficient,
+            final int base, int[] packed, final int coefficients) {
+        for (int k = 0; k < coefficients; k++) {
+            // Coefficient k covers digits end - digitsPerCoefficient .. end - 1
+            int end = offset + length - k * digitsPerCoefficient;
+            int start = Math.max(offset, end - digitsPerCoefficient);
+            long coefficient = 0;
+            for (int d = start; d < end; d++) {
+                coefficient = coefficient * base + digits[d];
+            }
+            packed[k] = (int) coefficient;
+        }
+    } // method pack
+
+    /**
+     * Computes the cyclic convolution of two coefficient arrays modulo one prime:
+     * forward transforms, pointwise product, inverse transform. When a and b are
+     * the same array it is a square, and a single forward transform is enough.
+     *
+     * @param a       one of the two coefficient arrays
+     * @param aLength how many coefficients a has
+     * @param b       the other coefficient array
+     * @param bLength how many coefficients b has
+     * @param length  the transform length, a power of two
+     * @param prime   index into PRIMES
+     * @param result  receives the convolution modulo PRIMES[prime] in its first
+     *                length entries
+     * @param spare   a second transform buffer of at least length entries
+     */
+    private static void convolve(final int[] a, final int aLength, final int[] b, final int bLength,
+            final int length, final int prime, int[] result, int[] spare) {
+        long modulus = PRIMES[prime];
+        System.arraycopy(a, 0, result, 0, aLength);
+        Arrays.fill(result, aLength, length, 0);
+        transform(result, length, false, prime);
+        if (a == b) {
+            // Squaring: the two forward transforms would be the same
+            for (int k = 0; k < length; k++) {
+                result[k] = (int) ((long) result[k] * result[k] % modulus);
+            }
+        } else {
+            System.arraycopy(b, 0, spare, 0, bLength);
+            Arrays.fill(spare, bLength, length, 0);
+            transform(spare, length, false, prime);
+            for (int k = 0; k < length; k++) {
+                result[k] = (int) ((long) result[k] * spare[k] % modulus);
+            }
+        }
+        transform(result, length, true, prime);
+    } // method convolve
+
+    /**
+     * convolve with the forward transform of b already done: transforms a,
+     * multiplies it pointwise by the spectrum and transforms back.
+     *
+     * @param a        the coefficient array to transform
+     * @param aLength  how many coefficients a has
+     * @param spectrum the forward transform of the other operand modulo the prime
+     * @param length   the transform length, a power of two
+     * @param prime    index into PRIMES
+     * @param result   receives the convolution modulo PRIMES[prime]
+     */
+    private static void convolve(final int[] a, final int aLength, final int[] spectrum, final int length,
+            final int prime, int[] result) {
+        long modulus = PRIMES[prime];
+        System.arraycopy(a, 0, result, 0, aLength);
+        Arrays.fill(result, aLength, length, 0);
+        transform(result, length, false, prime);
+        for (int k = 0; k < length; k++) {
+            result[k] = (int) ((long) result[k] * spectrum[k] % modulus);
+        }
+        transform(result, length, true, prime);
+    } // method convolve
+
+    /**
+     * In-place iterative NTT: a bit-reversal permutation followed by log2(n)
+     * rounds of butterflies. The inverse uses the inverse root and scales by 1/n.
+     *
+     * @param a       the values to transform
+     * @param n       how many of them, a power of two
+     * @param inverse true for the inverse transform
+     * @param prime   index into PRIMES
+     */
+    static void transform(int[] a, final int n, final boolean inverse, final int prime) {
+        long modulus = PRIMES[prime];
+        // Bit-reversal permutation
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                int temp = a[i];
+                a[i] = a[j];
+                a[j] = temp;
+            }
+        }
+        // Butterflies on blocks of length 2, 4, 8, ...
+        for (int half = 1; half < n; half <<= 1) {
+            long root = modPow(PRIMITIVE_ROOTS[prime], (modulus - 1) / (2 * half), modulus);
+            if (inverse) {
+                root = modPow(root, modulus - 2, modulus);
+            }
+            for (int start = 0; start < n; start += 2 * half) {
+                long w = 1;
+                for (int k = start; k < start + half; k++) {
+                    long even = a[k];
+                    long odd = a[k + half] * w % modulus;
+                    a[k] = (int) ((even + odd) % modulus);
+                    a[k + half] = (int) ((even - odd + modulus) % modulus);
+                    w = w * root % modulus;
+                }
+            }
+        }
+        if (inverse) {
+            long scale = modPow(n, modulus - 2, modulus);
+            for (int k = 0; k < n; k++) {
+                a[k] = (int) (a[k] * scale % modulus);
+            }
+        }
+    } // method transform
+
+    /**
+     * Rebuilds a column from its residues modulo the three primes (Garner's
+     * method). The result is computed modulo 2^64 and is exact because every
+     * column is below COLUMN_BOUND.
+     */
+    private static long crt(final long r0, final long r1, final long r2) {
+        long p0 = PRIMES[0];
+        long p1 = PRIMES[1];
+        long p2 = PRIMES[2];
+        // x = r0 + p0 * k1 matches r1 modulo p1
+        long k1 = (r1 - r0 % p1 + p1) % p1 * INVERSE_P0_MOD_P1 % p1;
+        long x01 = r0 + p0 * k1;
+        // x = x01 + p0 * p1 * k2 matches r2 modulo p2
+        long k2 = (r2 - x01 % p2 + p2) % p2 * INVERSE_P0P1_MOD_P2 % p2;
+        return x01 + p0 * p1 * k2;
+    } // method crt
+
+    /** Computes base^exponent modulo modulus by repeated squaring */
+    private static long modPow(long base, long exponent, final long modulus) {
+        long result = 1;
+        base %= modulus;
+        while (exponent > 0) {
+            if ((exponent & 1) == 1) {
+                result = result * base % modulus;
+            }
+            base = base * base % modulus;
+            exponent >>= 1;
+        }
+        return result;
+    } // method modPow
+
+} // class NttMultiplication
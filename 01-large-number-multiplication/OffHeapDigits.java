@@ -0,0 +1,74 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Allocates off-heap digit storage when the JVM can.
+ *
+ * SegmentDigits uses the Foreign Function and Memory API, which is final from
+ * JDK 22 on and a preview in JDK 21. As VectorKernel does for the Vector API,
+ * this class never names SegmentDigits in its code. It looks the class up by
+ * name at startup, and isAvailable() is false when the class is missing or this
+ * JVM cannot load it. Callers then stay with ArrayDigits.
+ */
+public class OffHeapDigits {
+
+    /** The SegmentDigits constructor, typed to return a DigitStorage, or null */
+    private static final MethodHandle CONSTRUCTOR = load();
+
+    /** Looks up the SegmentDigits constructor */
+    private static MethodHandle load() {
+        MethodHandle constructor = null;
+        try {
+            constructor = MethodHandles.lookup()
+                    .findConstructor(Class.forName("SegmentDigits"), MethodType.methodType(void.class, long.class))
+                    .asType(MethodType.methodType(DigitStorage.class, long.class));
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Not compiled, or compiled for a preview this JVM does not enable
+            constructor = null;
+        }
+        return constructor;
+    } // method load
+
+    /** Returns true if off-heap storage can be allocated */
+    public static boolean isAvailable() {
+        return CONSTRUCTOR != null;
+    } // method isAvailable
+
+    /**
+     * Allocates length digits off the heap, all 0. Close the storage to free
+     * them.
+     *
+     * @param length the number of digits
+     * @return the new storage
+     * @throws IllegalStateException if isAvailable() is false
+     */
+    public static DigitStorage allocate(final long length) {
+        if (!isAvailable()) {
+            throw new IllegalStateException(
+                    "Off-heap digits not available; needs JDK 22, or JDK 21 with --enable-preview");
+        }
+        DigitStorage storage;
+        try {
+            storage = (DigitStorage) CONSTRUCTOR.invokeExact(length);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // The constructor declares no checked exceptions
+            throw new IllegalStateException(e);
+        }
+        return storage;
+    } // method allocate
+
+    /**
+     * Allocates length digits off the heap if that is available, or in an
+     * array otherwise.
+     *
+     * @param length the number of digits
+     * @return the new storage, all 0
+     */
+    public static DigitStorage allocateOrArray(final long length) {
+        return isAvailable() ? allocate(length) : new ArrayDigits(Math.toIntExact(length));
+    } // method allocateOrArray
+
+} // class OffHeapDigits
@@ -0,0 +1,215 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays; // for equals() only
+import java.util.Random;
+
+/**
+ * Multiplies numbers stored in files, for operands too large for the heap.
+ *
+ * A digit file holds one digit per 32-bit big-endian int, most significant
+ * digit first, the same order as the digit arrays, and nothing else. The base
+ * is not stored; the caller supplies it.
+ *
+ * The inputs and the product are memory-mapped with FileChannel.map, and
+ * StorageArithmetic multiplies them block by block: it reads blocks of the
+ * inputs into arrays, multiplies them with the in-memory kernels and writes
+ * each finished block of the product back to its file. Only those blocks and
+ * the kernels' workspace are on the heap; the mapped pages belong to the
+ * operating system's file cache.
+ */
+public class OutOfCoreMultiplication {
+
+    // ------------------------------ CONSTANTS ---------------------------------
+
+    /** Bytes per digit in a digit file */
+    private static final int DIGIT_BYTES = Integer.BYTES;
+
+    /** Digits per mapped window of a file, 1 GiB */
+    private static final int WINDOW_DIGITS = 1 << 28;
+
+    /**
+     * Multiplies the numbers in two digit files and writes the product to a
+     * third. Like multiplyUntrimmed, the product has exactly as many digits as
+     * both inputs together, leading zeros included.
+     *
+     * @param xFile        the digit file of one number
+     * @param yFile        the digit file of the other number
+     * @param productFile  the file to write the product to; created or replaced
+     * @param base         the number base of the digits
+     * @param memoryBudget the most heap, in bytes, to use for blocks, the
+     *                     accumulator and the kernels' workspace
+     * @throws IOException              if a file cannot be read or written
+     * @throws IllegalArgumentException if a file is not a whole number of digits
+     *                                  or the budget is too small for even one
+     *                                  digit per block
+     */
+    public static void multiply(final Path xFile, final Path yFile, final Path productFile, final int base,
+            final long memoryBudget) throws IOException {
+        try (FileChannel xChannel = FileChannel.open(xFile, StandardOpenOption.READ);
+                FileChannel yChannel = FileChannel.open(yFile, StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(productFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedDigits x = new MappedDigits(xChannel, digitsIn(xChannel), FileChannel.MapMode.READ_ONLY);
+            MappedDigits y = new MappedDigits(yChannel, digitsIn(yChannel), FileChannel.MapMode.READ_ONLY);
+            MappedDigits product = new MappedDigits(out, x.length() + y.length(), FileChannel.MapMode.READ_WRITE);
+            StorageArithmetic.multiply(x, y, product, base, memoryBudget);
+        } catch (UncheckedIOException e) {
+            // MappedDigits wraps mapping failures to fit the DigitStorage methods
+            throw e.getCause();
+        }
+    } // method multiply
+
+    /** Returns the number of digits in a digit file */
+    private static long digitsIn(final FileChannel channel) throws IOException {
+        long bytes = channel.size();
+        if (bytes % DIGIT_BYTES != 0) {
+            throw new IllegalArgumentException("Not a digit file: " + bytes + " bytes");
+        }
+        return bytes / DIGIT_BYTES;
+    } // method digitsIn
+
+    /**
+     * Writes a digit array to a digit file.
+     *
+     * @param digits the digits, most significant first
+     * @param file   the file to create or replace
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeDigits(final int[] digits, final Path file) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(digits.length * DIGIT_BYTES);
+        bytes.asIntBuffer().put(digits);
+        Files.write(file, bytes.array());
+    } // method writeDigits
+
+    /**
+     * Reads a digit file that fits in memory into a digit array.
+     *
+     * @param file the digit file
+     * @return its digits, most significant first
+     * @throws IOException if the file cannot be read
+     */
+    public static int[] readDigits(final Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        if (bytes.length % DIGIT_BYTES != 0) {
+            throw new IllegalArgumentException("Not a digit file: " + file);
+        }
+        int[] digits = new int[bytes.length / DIGIT_BYTES];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(digits);
+        return digits;
+    } // method readDigits
+
+    /**
+     * The digits of a file as a DigitStorage, mapped a window at a time so files
+     * longer than one mapping can hold work too. Windows are mapped on first use.
+     * The mappings go away with the garbage collector, so close() does nothing.
+     */
+    private static class MappedDigits implements DigitStorage {
+        private final FileChannel channel;
+        private final long length;
+        private final FileChannel.MapMode mode;
+        private final IntBuffer[] windows;
+
+        MappedDigits(final FileChannel channel, final long length, final FileChannel.MapMode mode) {
+            this.channel = channel;
+            this.length = length;
+            this.mode = mode;
+            this.windows = new IntBuffer[(int) ((length + WINDOW_DIGITS - 1) / WINDOW_DIGITS)];
+        } // constructor
+
+        @Override
+        public long length() {
+            return this.length;
+        } // method length
+
+        @Override
+        public int get(final long index) {
+            return window(index).get((int) (index % WINDOW_DIGITS));
+        } // method get
+
+        @Override
+        public void set(final long index, final int digit) {
+            window(index).put((int) (index % WINDOW_DIGITS), digit);
+        } // method set
+
+        @Override
+        public void read(final long from, int[] dst, final int dstOffset, final int count) {
+            // A range may straddle two windows
+            int done = 0;
+            while (done < count) {
+                long digit = from + done;
+                int offset = (int) (digit % WINDOW_DIGITS);
+                int piece = Math.min(count - done, WINDOW_DIGITS - offset);
+                window(digit).get(offset, dst, dstOffset + done, piece);
+                done += piece;
+            }
+        } // method read
+
+        @Override
+        public void write(final int[] src, final int srcOffset, final long to, final int count) {
+            int done = 0;
+            while (done < count) {
+                long digit = to + done;
+                int offset = (int) (digit % WINDOW_DIGITS);
+                int piece = Math.min(count - done, WINDOW_DIGITS - offset);
+                window(digit).put(offset, src, srcOffset + done, piece);
+                done += piece;
+            }
+        } // method write
+
+        @Override
+        public void close() {
+        } // method close
+
+        /** Returns the window holding the digit at index, mapping it first if needed */
+        private IntBuffer window(final long index) {
+            int w = (int) (index / WINDOW_DIGITS);
+            if (this.windows[w] == null) {
+                long first = (long) w * WINDOW_DIGITS;
+                long digits = Math.min(WINDOW_DIGITS, this.length - first);
+                try {
+                    MappedByteBuffer mapped = this.channel.map(this.mode, first * DIGIT_BYTES, digits * DIGIT_BYTES);
+                    this.windows[w] = mapped.asIntBuffer();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return this.windows[w];
+        } // method window
+    } // class MappedDigits
+
+    /** Demo: multiplies two 200000-digit files with a 1 MB budget and checks the product */
+    public static void main(String[] args) throws IOException {
+        Random random = new Random(42);
+        int[] x = new int[200000];
+        int[] y = new int[200000];
+        for (int k = 0; k < x.length; k++) {
+            x[k] = random.nextInt(10);
+            y[k] = random.nextInt(10);
+        }
+        Path xFile = Files.createTempFile("x", ".digits");
+        Path yFile = Files.createTempFile("y", ".digits");
+        Path productFile = Files.createTempFile("product", ".digits");
+        try {
+            writeDigits(x, xFile);
+            writeDigits(y, yFile);
+            long start = System.nanoTime();
+            multiply(xFile, yFile, productFile, 10, 1 << 20);
+            long elapsed = System.nanoTime() - start;
+            boolean same = Arrays.equals(readDigits(productFile),
+                    GradeSchoolMultiplication_Solution.multiplyUntrimmed(x, y, 10));
+            System.out.printf("%d ms, same as in memory: %b%n", elapsed / 1000000, same);
+        } finally {
+            Files.delete(xFile);
+            Files.delete(yFile);
+            Files.delete(productFile);
+        }
+    } // method main
+
+} // class OutOfCoreMultiplication
@@ -0,0 +1,163 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Multiplies large operands on several cores with a ForkJoinPool.
+ *
+ * The top levels of the Karatsuba recursion split a product into three
+ * independent sub-products, z2 = x1 * y1, z0 = x0 * y0 and the middle product
+ * (x0 + x1)(y0 + y1). Those run as separate fork/join tasks, and the results
+ * are combined with the same carry-correct additions as in
+ * KaratsubaMultiplication. Very unbalanced operands are cut into slices whose
+ * products run as separate tasks instead.
+ *
+ * Every level of splitting adds some total work, so the splitting stops once
+ * there are enough tasks to keep every worker busy, or once the operands are
+ * below the threshold. From there each task multiplies sequentially with the
+ * dispatcher in GradeSchoolMultiplication_Solution. Halves and slices are
+ * DigitSpan views of the caller's arrays, so splitting copies no digits.
+ */
+public class ParallelMultiplication {
+
+    /** Operand length below which a product is not worth splitting */
+    public static final int DEFAULT_THRESHOLD = 1 << 14;
+
+    /** Current threshold; the shorter operand must be at least this long */
+    private static volatile int threshold = DEFAULT_THRESHOLD;
+
+    /** Tasks per worker to aim for, so that uneven tasks still balance out */
+    private static final int TASKS_PER_WORKER = 2;
+
+    /** Returns the current threshold */
+    public static int getThreshold() {
+        return threshold;
+    } // method getThreshold
+
+    /**
+     * Sets the operand length below which products run sequentially.
+     *
+     * @param newThreshold the new threshold, at least the Karatsuba cutoff
+     */
+    public static void setThreshold(final int newThreshold) {
+        if (newThreshold < KaratsubaMultiplication.getCutoff()) {
+            throw new IllegalArgumentException("Parallel threshold must be at least the Karatsuba cutoff: "
+                    + newThreshold);
+        }
+        threshold = newThreshold;
+    } // method setThreshold
+
+    /**
+     * Multiplies two integers represented as arrays of digits in the common
+     * fork/join pool. The product has exactly x.length + y.length digits.
+     *
+     * @param x    one of the two numbers to multiply
+     * @param y    the other number to multiply
+     * @param base the number base of the system
+     * @return the product, with x.length + y.length digits
+     */
+    public static int[] multiply(final int[] x, final int[] y, final int base) {
+        return multiply(x, y, base, ForkJoinPool.commonPool());
+    } // method multiply
+
+    /**
+     * Multiplies two integers represented as arrays of digits in the given pool.
+     *
+     * @param x    one of the two numbers to multiply
+     * @param y    the other number to multiply
+     * @param base the number base of the system
+     * @param pool the pool to run the tasks in
+     * @return the product, with x.length + y.length digits
+     */
+    public static int[] multiply(final int[] x, final int[] y, final int base, final ForkJoinPool pool) {
+        return pool.invoke(
+                new ProductTask(DigitSpan.of(x), DigitSpan.of(y), base, TASKS_PER_WORKER * pool.getParallelism()));
+    } // method multiply
+
+    /**
+     * One product. It splits itself into sub-tasks while it is large enough and
+     * while its share of the pool is more than one task.
+     */
+    @SuppressWarnings("serial")
+    private static class ProductTask extends RecursiveTask<int[]> {
+        private final DigitSpan x;
+        private final DigitSpan y;
+        private final int base;
+        /** How many tasks this product may still be split into */
+        private final int budget;
+
+        ProductTask(final DigitSpan x, final DigitSpan y, final int base, final int budget) {
+            this.x = x;
+            this.y = y;
+            this.base = base;
+            this.budget = budget;
+        } // constructor
+
+        @Override
+        protected int[] compute() {
+            int[] product;
+            int shorter = Math.min(this.x.length(), this.y.length());
+            int longer = Math.max(this.x.length(), this.y.length());
+            if (shorter < threshold || this.budget <= 1) {
+                product = GradeSchoolMultiplication_Solution.multiplyUntrimmed(this.x, this.y, this.base);
+            } else if (2 * shorter <= longer) {
+                product = slices();
+            } else {
+                product = karatsuba();
+            }
+            return product;
+        } // method compute
+
+        /** Forks the three Karatsuba sub-products and combines them */
+        private int[] karatsuba() {
+            int longer = Math.max(this.x.length(), this.y.length());
+            int half = longer / 2;
+            DigitSpan x1 = this.x.high(half);
+            DigitSpan x0 = this.x.low(half);
+            // For a square the halves are shared, so the sub-tasks square too
+            boolean squaring = this.x.sameDigits(this.y);
+            DigitSpan y1 = squaring ? x1 : this.y.high(half);
+            DigitSpan y0 = squaring ? x0 : this.y.low(half);
+            int share = this.budget / 3;
+            ProductTask low = new ProductTask(x0, y0, this.base, share);
+            ProductTask high = new ProductTask(x1, y1, this.base, share);
+            low.fork();
+            high.fork();
+            // The middle product runs in this thread while the other two are stolen
+            DigitSpan xSum = DigitArithmetic.add(x0, x1, this.base);
+            DigitSpan ySum = squaring ? xSum : DigitArithmetic.add(y0, y1, this.base);
+            int[] z1 = new ProductTask(xSum, ySum, this.base, share).compute();
+            int[] z2 = high.join();
+            int[] z0 = low.join();
+            DigitArithmetic.subtractInPlace(z1, z0, this.base);
+            DigitArithmetic.subtractInPlace(z1, z2, this.base);
+            int[] product = new int[this.x.length() + this.y.length()];
+            DigitArithmetic.addInto(product, z0, 0, this.base);
+            DigitArithmetic.addInto(product, z1, half, this.base);
+            DigitArithmetic.addInto(product, z2, 2 * half, this.base);
+            return product;
+        } // method karatsuba
+
+        /** Forks one task per slice of the longer operand and adds them up */
+        private int[] slices() {
+            DigitSpan longOperand = (this.x.length() >= this.y.length()) ? this.x : this.y;
+            DigitSpan shortOperand = (this.x.length() >= this.y.length()) ? this.y : this.x;
+            int sliceLength = shortOperand.length();
+            int sliceCount = (longOperand.length() + sliceLength - 1) / sliceLength;
+            int share = Math.max(1, this.budget / sliceCount);
+            ProductTask[] tasks = new ProductTask[sliceCount];
+            for (int k = 0; k < sliceCount; k++) {
+                int end = longOperand.length() - k * sliceLength;
+                int start = Math.max(0, end - sliceLength);
+                tasks[k] = new ProductTask(longOperand.slice(start, end - start), shortOperand, this.base, share);
+                tasks[k].fork();
+            }
+            // Slice products overlap in the result, so they are added in one thread
+            int[] product = new int[this.x.length() + this.y.length()];
+            for (int k = 0; k < sliceCount; k++) {
+                DigitArithmetic.addInto(product, tasks[k].join(), k * sliceLength, this.base);
+            }
+            return product;
+        } // method slices
+    } // class ProductTask
+
+} // class ParallelMultiplication
@@ -0,0 +1,185 @@
+import java.util.Arrays; // for copyOf() and equals() only
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A number that will be multiplied by many others, with the work that only
+ * depends on it done once.
+ *
+ * In the NTT, a product costs three transforms per prime: one forward
+ * transform of each operand and one inverse transform of their pointwise
+ * product. The forward transform of a constant operand is the same on every
+ * call, so a prepared multiplicand keeps it, its spectrum, and a product then
+ * costs two transforms per prime instead of three, the other operand's and the
+ * inverse. That is a third less work for products of equal length.
+ *
+ * A spectrum depends on the digits packed per coefficient and the transform
+ * length, and both depend on the other operand's length. Spectra are therefore
+ * kept per NttMultiplication.spectrumKey and built the first time an operand
+ * needs one. Operands of similar length share a key, and the spectrum for
+ * operands as long as the constant is built up front.
+ *
+ * Below the NTT cutoff, and for bases the NTT does not support, products go to
+ * GradeSchoolMultiplication_Solution as usual. Karatsuba could keep the sums of
+ * the constant's halves, but those are linear work next to the recursive
+ * products, so there is nothing worth caching.
+ *
+ * A prepared multiplicand can be shared by several threads: the spectra are
+ * never written after they are built, and each thread brings its own
+ * workspace.
+ */
+public class PreparedMultiplicand {
+
+    /** The constant's digits, most significant first */
+    private final int[] digits;
+
+    /** The number base of the constant and of every other operand */
+    private final int base;
+
+    /** Spectra of the constant, by NttMultiplication.spectrumKey */
+    private final ConcurrentHashMap<Long, NttMultiplication.Spectrum> spectra = new ConcurrentHashMap<>();
+
+    /**
+     * Prepares a number for repeated multiplication.
+     *
+     * @param constant the number; it is copied, so the caller may change it
+     *                 afterwards
+     * @param base     the number base of the constant and of the other operands
+     */
+    public PreparedMultiplicand(final int[] constant, final int base) {
+        // The spectrum decision below reads the NTT cutoff, so apply the saved cutoffs first
+        CutoffTuner.applyOnFirstUse();
+        if (base < 2) {
+            throw new IllegalArgumentException("Base must be at least 2: " + base);
+        }
+        this.digits = Arrays.copyOf(constant, constant.length);
+        this.base = base;
+        if (usesSpectrum(this.digits.length)) {
+            spectrum(this.digits.length);
+        }
+    } // constructor
+
+    /** Returns the number of digits of the constant */
+    public int length() {
+        return this.digits.length;
+    } // method length
+
+    /**
+     * Multiplies x by the constant, like GradeSchoolMultiplication_Solution.multiply.
+     *
+     * @param x the other number, in the constant's base
+     * @return the product, without leading zeros
+     */
+    public int[] multiply(final int[] x) {
+        int[] result;
+        if (x.length == 0 || this.digits.length == 0) {
+            result = new int[1];
+        } else {
+            result = DigitArithmetic.trimLeadingZero(multiplyUntrimmed(x));
+        }
+        if (ProductCheck.isEnabled()) {
+            ProductCheck.verify(x, this.digits, result, this.base);
+        }
+        return result;
+    } // method multiply
+
+    /**
+     * Multiplies x by the constant, like
+     * GradeSchoolMultiplication_Solution.multiplyUntrimmed.
+     *
+     * @param x the other number, in the constant's base
+     * @return the product, padded with leading zeros to x.length + length()
+     *         digits
+     */
+    public int[] multiplyUntrimmed(final int[] x) {
+        int[] result;
+        if (usesSpectrum(x.length)) {
+            result = new int[x.length + this.digits.length];
+            NttMultiplication.multiply(x, spectrum(x.length), this.base, result,
+                    MultiplicationWorkspace.forCurrentThread());
+        } else {
+            result = GradeSchoolMultiplication_Solution.multiplyUntrimmed(x, this.digits, this.base);
+        }
+        return result;
+    } // method multiplyUntrimmed
+
+    /**
+     * Allocation-free form of multiply, like
+     * GradeSchoolMultiplication_Solution.multiplyInto. Once the spectrum for
+     * x's length exists and the workspace has grown, a call allocates nothing.
+     *
+     * @param x         the other number, in the constant's base
+     * @param out       receives the x.length + length() digits of the product;
+     *                  may not overlap x
+     * @param workspace temporary arrays, reused from call to call
+     */
+    public void multiplyInto(final int[] x, int[] out, final MultiplicationWorkspace workspace) {
+        if (out.length < x.length + this.digits.length) {
+            throw new IllegalArgumentException(
+                    "Output holds " + out.length + " digits; the product needs " + (x.length + this.digits.length));
+        }
+        if (usesSpectrum(x.length)) {
+            NttMultiplication.multiply(x, spectrum(x.length), this.base, out, workspace);
+            if (ProductCheck.isEnabled()) {
+                ProductCheck.verify(DigitSpan.of(x), DigitSpan.of(this.digits),
+                        new DigitSpan(out, 0, x.length + this.digits.length), this.base);
+            }
+        } else {
+            // Checked there when the check is on
+            GradeSchoolMultiplication_Solution.multiplyInto(x, this.digits, this.base, out, workspace);
+        }
+    } // method multiplyInto
+
+    /** Returns true if products with an operand of this length go through a spectrum */
+    private boolean usesSpectrum(final int xLength) {
+        return Math.min(xLength, this.digits.length) >= NttMultiplication.getCutoff()
+                && NttMultiplication.supports(xLength, this.digits.length, this.base);
+    } // method usesSpectrum
+
+    /** Returns the constant's spectrum for operands of this length, building it on first use */
+    private NttMultiplication.Spectrum spectrum(final int xLength) {
+        long key = NttMultiplication.spectrumKey(xLength, this.digits.length, this.base);
+        return this.spectra.computeIfAbsent(key, k -> NttMultiplication.spectrum(this.digits, k, this.base));
+    } // method spectrum
+
+    /** Demo: many products by one 100000-digit constant, prepared and not */
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        int base = 10;
+        int[] constant = new int[100000];
+        for (int k = 0; k < constant.length; k++) {
+            constant[k] = random.nextInt(base);
+        }
+        PreparedMultiplicand prepared = new PreparedMultiplicand(constant, base);
+        int[][] inputs = new int[20][constant.length];
+        for (int[] input : inputs) {
+            for (int k = 0; k < input.length; k++) {
+                input[k] = random.nextInt(base);
+            }
+        }
+        int[] out = new int[2 * constant.length];
+        MultiplicationWorkspace workspace = new MultiplicationWorkspace();
+        // The first pass warms up the JIT
+        for (int pass = 0; pass < 2; pass++) {
+            long start = System.nanoTime();
+            for (int[] input : inputs) {
+                GradeSchoolMultiplication_Solution.multiplyInto(input, constant, base, out, workspace);
+            }
+            double plain = (System.nanoTime() - start) / 1e6 / inputs.length;
+            start = System.nanoTime();
+            for (int[] input : inputs) {
+                prepared.multiplyInto(input, out, workspace);
+            }
+            double cached = (System.nanoTime() - start) / 1e6 / inputs.length;
+            if (pass == 1) {
+                System.out.printf("%d digits: %.2f ms per product, %.2f ms prepared%n", constant.length, plain,
+                        cached);
+            }
+        }
+        if (!Arrays.equals(prepared.multiply(inputs[0]),
+                GradeSchoolMultiplication_Solution.multiply(inputs[0], constant, base))) {
+            throw new IllegalStateException("Prepared product differs");
+        }
+    } // method main
+
+} // class PreparedMultiplicand
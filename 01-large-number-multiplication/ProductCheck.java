@@ -0,0 +1,186 @@
+import java.util.Random;
+
+/**
+ * Checks a product modulo a few primes, in time linear in the number of
+ * digits.
+ *
+ * If z = x * y, then z mod p = (x mod p)(y mod p) mod p for every p. The
+ * residues of x, y and z take one pass over their digits each, so checking the
+ * congruence costs far less than any multiplication of the same numbers. A
+ * wrong product passes only if the error is a multiple of every prime. The
+ * three primes below are just under 2^31, so an error passes all of them only
+ * if it is a multiple of their product, about 2^93.
+ *
+ * Residues are computed by Horner's rule, with the digits gathered into chunks
+ * of up to 2^31 first. That takes one long multiplication per digit and one
+ * remainder per chunk and prime, rather than a remainder per digit. The
+ * remainders are by constants, which the JIT turns into multiplications.
+ *
+ * verify() checks any product on request. When the check is enabled, with
+ * setEnabled(true) or the system property multiply.verify=true, the multiply
+ * entry points of GradeSchoolMultiplication_Solution and PreparedMultiplicand
+ * check every result before they return it. That adds about 5% to a product of
+ * 10 digits, 3% at 100 digits and less from there on: a million-digit product
+ * takes about a second, its check a few milliseconds.
+ */
+public class ProductCheck {
+
+    // ------------------------------ CONSTANTS ---------------------------------
+
+    /** System property that turns the check on at startup */
+    public static final String ENABLED_PROPERTY = "multiply.verify";
+
+    /** The primes, each below 2^31 so that two residues multiply in a long */
+    private static final long P0 = 2147483647L;
+    private static final long P1 = 2147483629L;
+    private static final long P2 = 2147483587L;
+    private static final long[] PRIMES = { P0, P1, P2 };
+
+    /** Bound on a chunk of digits, so that residue * chunk base stays in a long */
+    private static final long CHUNK_BOUND = 1L << 31;
+
+    /** True if the multiply entry points check their results */
+    private static volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    /** Returns true if the multiply entry points check their results */
+    public static boolean isEnabled() {
+        return enabled;
+    } // method isEnabled
+
+    /**
+     * Turns the check of every product in the multiply entry points on or off.
+     *
+     * @param newEnabled true to check every product
+     */
+    public static void setEnabled(final boolean newEnabled) {
+        enabled = newEnabled;
+    } // method setEnabled
+
+    /**
+     * Returns true if product is congruent to x * y modulo each prime. Leading
+     * zeros do not matter, so trimmed and untrimmed products both pass.
+     *
+     * @param x       one of the two numbers multiplied
+     * @param y       the other number multiplied
+     * @param product the product to check
+     * @param base    the number base of all three
+     * @return true if the product passes
+     */
+    public static boolean holds(final int[] x, final int[] y, final int[] product, final int base) {
+        return holds(DigitSpan.of(x), DigitSpan.of(y), DigitSpan.of(product), base);
+    } // method holds
+
+    /**
+     * Span form of holds.
+     *
+     * @param x       one of the two numbers multiplied
+     * @param y       the other number multiplied
+     * @param product the product to check
+     * @param base    the number base of all three
+     * @return true if the product passes
+     */
+    public static boolean holds(final DigitSpan x, final DigitSpan y, final DigitSpan product, final int base) {
+        long[] xResidues = residues(x, base);
+        long[] yResidues = x.sameDigits(y) ? xResidues : residues(y, base);
+        long[] productResidues = residues(product, base);
+        boolean result = true;
+        for (int p = 0; p < PRIMES.length && result; p++) {
+            result = xResidues[p] * yResidues[p] % PRIMES[p] == productResidues[p];
+        }
+        return result;
+    } // method holds
+
+    /**
+     * Checks a product and throws if it is wrong.
+     *
+     * @param x       one of the two numbers multiplied
+     * @param y       the other number multiplied
+     * @param product the product to check
+     * @param base    the number base of all three
+     * @throws IllegalStateException if the product is not x * y
+     */
+    public static void verify(final int[] x, final int[] y, final int[] product, final int base) {
+        verify(DigitSpan.of(x), DigitSpan.of(y), DigitSpan.of(product), base);
+    } // method verify
+
+    /**
+     * Span form of verify.
+     *
+     * @param x       one of the two numbers multiplied
+     * @param y       the other number multiplied
+     * @param product the product to check
+     * @param base    the number base of all three
+     * @throws IllegalStateException if the product is not x * y
+     */
+    public static void verify(final DigitSpan x, final DigitSpan y, final DigitSpan product, final int base) {
+        if (!holds(x, y, product, base)) {
+            throw new IllegalStateException("Product check failed: the " + product.length()
+                    + "-digit product of " + x.length() + " and " + y.length() + " digits in base " + base
+                    + " is wrong");
+        }
+    } // method verify
+
+    /**
+     * Returns the number modulo each prime.
+     *
+     * @param number the digits, most significant first
+     * @param base   the number base of the system
+     * @return one residue per prime
+     */
+    private static long[] residues(final DigitSpan number, final int base) {
+        // As many digits per chunk as keep the chunk below CHUNK_BOUND
+        int chunkDigits = 1;
+        long chunkBase = base;
+        while (chunkBase * base <= CHUNK_BOUND) {
+            chunkBase *= base;
+            chunkDigits++;
+        }
+        int[] digits = number.array();
+        int end = number.offset() + number.length();
+        // The short chunk goes first, so that every later chunk is a full one
+        int d = number.offset();
+        long chunk = 0;
+        for (int headEnd = d + number.length() % chunkDigits; d < headEnd; d++) {
+            chunk = chunk * base + digits[d];
+        }
+        long r0 = chunk % P0;
+        long r1 = chunk % P1;
+        long r2 = chunk % P2;
+        while (d < end) {
+            chunk = 0;
+            for (int chunkEnd = d + chunkDigits; d < chunkEnd; d++) {
+                chunk = chunk * base + digits[d];
+            }
+            r0 = (r0 * chunkBase + chunk) % P0;
+            r1 = (r1 * chunkBase + chunk) % P1;
+            r2 = (r2 * chunkBase + chunk) % P2;
+        }
+        return new long[] { r0, r1, r2 };
+    } // method residues
+
+    /** Demo: checks a correct and a corrupted product, and times the check */
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        int base = 10;
+        int[] x = new int[1000000];
+        int[] y = new int[1000000];
+        for (int k = 0; k < x.length; k++) {
+            x[k] = random.nextInt(base);
+            y[k] = random.nextInt(base);
+        }
+        long start = System.nanoTime();
+        int[] product = GradeSchoolMultiplication_Solution.multiply(x, y, base);
+        double multiplied = (System.nanoTime() - start) / 1e6;
+        // The first pass warms up the JIT
+        double checked = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            start = System.nanoTime();
+            verify(x, y, product, base);
+            checked = (System.nanoTime() - start) / 1e6;
+        }
+        product[product.length / 2] = (product[product.length / 2] + 1) % base;
+        System.out.printf("%d digits: multiply %.1f ms, check %.1f ms; corrupted product passes: %b%n", x.length,
+                multiplied, checked, holds(x, y, product, base));
+    } // method main
+
+} // class ProductCheck
@@ -0,0 +1,284 @@
+import java.util.ArrayList;
+import java.util.Arrays; // for binarySearch() and toString() only
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Products of many numbers, factorials and binomial coefficients.
+ *
+ * Multiplying a list from left to right keeps a huge running product and
+ * multiplies it by one small number at a time, so every step is as unbalanced
+ * as a product can be and the fast methods never get going. A product tree
+ * instead multiplies the left half of the list and the right half separately,
+ * and then the two results. Both halves are cut so they have about the same
+ * total number of digits. Every level of the tree multiplies operands of equal
+ * size, and the two halves can run in parallel.
+ *
+ * n! uses Luschny's prime swing: n! = ((n/2)!)^2 * swing(n), where the swing
+ * n! / ((n/2)!)^2 is a product of prime powers p^e, each at most n. Its
+ * exponents come straight from the binary digits of n / p, n / p^2, ... So
+ * the recursion multiplies a few large prime-power products and squares, not
+ * n small factors. The binomial coefficient is a product of prime powers too,
+ * with Kummer's exponents.
+ */
+public class ProductTree {
+
+    /** Total digits below which a subtree is not worth a fork/join task */
+    private static final int PARALLEL_DIGITS = 1 << 12;
+
+    /**
+     * Multiplies all numbers in the list with a balanced product tree.
+     *
+     * @param factors the numbers to multiply; not modified
+     * @param base    the number base of the system
+     * @return their product, without leading zeros; the empty product is [1]
+     *         and zero is [0]
+     */
+    public static int[] productOf(final List<int[]> factors, final int base) {
+        return productOf(factors, base, false);
+    } // method productOf
+
+    /**
+     * Multiplies all numbers in the list with a balanced product tree, whose
+     * subtrees and large products run in the common fork/join pool if parallel
+     * is true.
+     *
+     * @param factors  the numbers to multiply; not modified
+     * @param base     the number base of the system
+     * @param parallel true to use the fork/join pool
+     * @return their product, without leading zeros, in a new array; the empty
+     *         product is [1] and zero is [0]
+     */
+    public static int[] productOf(final List<int[]> factors, final int base, final boolean parallel) {
+        int[][] stripped = new int[factors.size()][];
+        // prefix[i] is the number of digits in the first i factors
+        long[] prefix = new long[stripped.length + 1];
+        boolean zero = false;
+        for (int i = 0; i < stripped.length; i++) {
+            stripped[i] = DigitArithmetic.stripLeadingZeros(factors.get(i));
+            zero |= stripped[i].length == 0;
+            prefix[i + 1] = prefix[i] + stripped[i].length;
+        }
+        int[] result;
+        if (zero) {
+            result = new int[1];
+        } else if (stripped.length == 0) {
+            result = new int[] { 1 };
+        } else if (stripped.length == 1) {
+            // A lone factor is its own product; copy it so the result never aliases the caller's array
+            result = stripped[0].clone();
+        } else {
+            SubtreeTask root = new SubtreeTask(stripped, prefix, 0, stripped.length, base, parallel);
+            result = parallel ? ForkJoinPool.commonPool().invoke(root) : root.compute();
+        }
+        return result;
+    } // method productOf
+
+    /**
+     * Computes n! with the prime swing.
+     *
+     * @param n    a non-negative integer
+     * @param base the number base of the result
+     * @return n!, without leading zeros
+     */
+    public static int[] factorial(final int n, final int base) {
+        return factorial(n, base, false);
+    } // method factorial
+
+    /**
+     * Computes n! with the prime swing, optionally in parallel.
+     *
+     * @param n        a non-negative integer
+     * @param base     the number base of the result
+     * @param parallel true to use the fork/join pool
+     * @return n!, without leading zeros
+     */
+    public static int[] factorial(final int n, final int base, final boolean parallel) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Factorial of a negative number: " + n);
+        }
+        return swingFactorial(n, primesUpTo(n), base, parallel);
+    } // method factorial
+
+    /**
+     * Computes the binomial coefficient n choose k.
+     *
+     * @param n    a non-negative integer
+     * @param k    any integer; outside 0..n the coefficient is 0
+     * @param base the number base of the result
+     * @return n! / (k! (n - k)!), without leading zeros
+     */
+    public static int[] binomial(final int n, final int k, final int base) {
+        return binomial(n, k, base, false);
+    } // method binomial
+
+    /**
+     * Computes the binomial coefficient n choose k, optionally in parallel.
+     *
+     * @param n        a non-negative integer
+     * @param k        any integer; outside 0..n the coefficient is 0
+     * @param base     the number base of the result
+     * @param parallel true to use the fork/join pool
+     * @return n! / (k! (n - k)!), without leading zeros
+     */
+    public static int[] binomial(final int n, final int k, final int base, final boolean parallel) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Binomial coefficient of a negative number: " + n);
+        }
+        int[] result;
+        if (k < 0 || k > n) {
+            result = new int[1];
+        } else {
+            BitSet primes = primesUpTo(n);
+            List<Long> powers = new ArrayList<>();
+            for (int p = primes.nextSetBit(0); p >= 0; p = primes.nextSetBit(p + 1)) {
+                // Kummer: the exponent of p is the number of carries when adding k
+                // and n - k in base p
+                long power = 1;
+                for (long q = p; q <= n; q *= p) {
+                    if (n / q - k / q - (n - k) / q > 0) {
+                        power *= p;
+                    }
+                }
+                if (power > 1) {
+                    powers.add(power);
+                }
+            }
+            result = productOfSmall(powers, base, parallel);
+        }
+        return result;
+    } // method binomial
+
+    /** n! = ((n/2)!)^2 * swing(n) */
+    private static int[] swingFactorial(final int n, final BitSet primes, final int base, final boolean parallel) {
+        int[] result;
+        if (n < 2) {
+            result = new int[] { 1 };
+        } else {
+            int[] half = swingFactorial(n / 2, primes, base, parallel);
+            int[] square = DigitArithmetic.stripLeadingZeros(GradeSchoolMultiplication_Solution.square(half, base));
+            int[] swing = swing(n, primes, base, parallel);
+            result = DigitArithmetic.stripLeadingZeros(
+                    GradeSchoolMultiplication_Solution.multiply(square, swing, base, parallel));
+        }
+        return result;
+    } // method swingFactorial
+
+    /**
+     * swing(n) = n! / ((n/2)!)^2: every prime p <= n appears with exponent
+     * (n/p mod 2) + (n/p^2 mod 2) + ..., so every prime power is at most n.
+     */
+    private static int[] swing(final int n, final BitSet primes, final int base, final boolean parallel) {
+        List<Long> powers = new ArrayList<>();
+        for (int p = primes.nextSetBit(0); p >= 0 && p <= n; p = primes.nextSetBit(p + 1)) {
+            long power = 1;
+            for (long q = n / p; q > 0; q /= p) {
+                if ((q & 1) == 1) {
+                    power *= p;
+                }
+            }
+            if (power > 1) {
+                powers.add(power);
+            }
+        }
+        return productOfSmall(powers, base, parallel);
+    } // method swing
+
+    /**
+     * Multiplies small factors: consecutive ones are multiplied in a long as long
+     * as that cannot overflow, and the resulting words go into a product tree.
+     */
+    private static int[] productOfSmall(final List<Long> factors, final int base, final boolean parallel) {
+        List<int[]> words = new ArrayList<>();
+        long word = 1;
+        for (long factor : factors) {
+            if (word > Long.MAX_VALUE / factor) {
+                words.add(DigitArithmetic.fromLong(word, base));
+                word = 1;
+            }
+            word *= factor;
+        }
+        words.add(DigitArithmetic.fromLong(word, base));
+        return productOf(words, base, parallel);
+    } // method productOfSmall
+
+    /** The primes up to n, as a sieve of Eratosthenes */
+    private static BitSet primesUpTo(final int n) {
+        BitSet primes = new BitSet(n + 1);
+        if (n >= 2) {
+            primes.set(2, n + 1);
+        }
+        for (long p = 2; p * p <= n; p = primes.nextSetBit((int) p + 1)) {
+            for (long multiple = p * p; multiple <= n; multiple += p) {
+                primes.clear((int) multiple);
+            }
+        }
+        return primes;
+    } // method primesUpTo
+
+    /**
+     * The product of factors[from .. to - 1]. The range is cut where the digits
+     * on both sides balance, and the halves fork when they are large enough.
+     */
+    @SuppressWarnings("serial")
+    private static class SubtreeTask extends RecursiveTask<int[]> {
+        private final int[][] factors;
+        private final long[] prefix;
+        private final int from;
+        private final int to;
+        private final int base;
+        private final boolean parallel;
+
+        SubtreeTask(final int[][] factors, final long[] prefix, final int from, final int to, final int base,
+                final boolean parallel) {
+            this.factors = factors;
+            this.prefix = prefix;
+            this.from = from;
+            this.to = to;
+            this.base = base;
+            this.parallel = parallel;
+        } // constructor
+
+        @Override
+        protected int[] compute() {
+            int[] product;
+            if (this.to - this.from == 1) {
+                product = this.factors[this.from];
+            } else {
+                // The first index whose prefix passes half the digits, kept inside
+                // the range so both halves get at least one factor
+                long half = (this.prefix[this.from] + this.prefix[this.to]) / 2;
+                int split = Arrays.binarySearch(this.prefix, this.from + 1, this.to, half);
+                split = (split >= 0) ? split : -split - 1;
+                split = Math.max(this.from + 1, Math.min(this.to - 1, split));
+                SubtreeTask left = new SubtreeTask(this.factors, this.prefix, this.from, split, this.base,
+                        this.parallel);
+                SubtreeTask right = new SubtreeTask(this.factors, this.prefix, split, this.to, this.base,
+                        this.parallel);
+                boolean fork = this.parallel && this.prefix[this.to] - this.prefix[this.from] >= PARALLEL_DIGITS;
+                int[] leftProduct;
+                int[] rightProduct;
+                if (fork) {
+                    left.fork();
+                    rightProduct = right.compute();
+                    leftProduct = left.join();
+                } else {
+                    leftProduct = left.compute();
+                    rightProduct = right.compute();
+                }
+                product = DigitArithmetic.stripLeadingZeros(
+                        GradeSchoolMultiplication_Solution.multiply(leftProduct, rightProduct, this.base, fork));
+            }
+            return product;
+        } // method compute
+    } // class SubtreeTask
+
+    /** Demo: 30! and 50 choose 25 in base 10 */
+    public static void main(String[] args) {
+        System.out.println(Arrays.toString(factorial(30, 10)));
+        System.out.println(Arrays.toString(binomial(50, 25, 10)));
+    } // method main
+
+} // class ProductTree
@@ -0,0 +1,163 @@
+import java.util.Arrays; // for toString() only
+
+/**
+ * Converts digit arrays of any length from one number base to another.
+ *
+ * Converting digit by digit, the way EasyMultiplications does with an int, has
+ * to carry every new digit through the whole result and takes O(n^2) steps. We
+ * divide and conquer instead. The digits are cut in two halves, low and high,
+ * and the value is high * fromBase^k + low, where k is the length of the low
+ * half. Each half is converted on its own, and one multiplication in the new base
+ * puts them back together. All the halves on one level of the recursion have
+ * the same length, so each level needs only one power, fromBase^k written in the
+ * new base. These powers are precomputed once, each one the square of the one
+ * below. With the fast multiplier a conversion then costs about O(M(n) log n),
+ * where M(n) is the cost of one n-digit multiplication.
+ *
+ * At the bottom, chunks of digits small enough to fit in a long are converted
+ * directly. Between two power-of-two bases no arithmetic is needed at all: the
+ * bits are just regrouped.
+ */
+public class RadixConversion {
+
+    // ------------------------------ CONSTANTS ---------------------------------
+
+    /**
+     * Largest base: every int base works. A leaf chunk of at least two digits
+     * still fits in a long, and power-of-two bases stop at 2^30.
+     */
+    public static final int MAX_BASE = Integer.MAX_VALUE;
+
+    /**
+     * Converts a number from one base to another. Both bases must be between 2 and
+     * MAX_BASE.
+     *
+     * @param digits   the number in fromBase, most significant digit first; every
+     *                 digit must be below fromBase
+     * @param fromBase the base the digits are in
+     * @param toBase   the base to convert to
+     * @return the number in toBase without leading zeros; zero comes back as [0]
+     */
+    public static int[] convert(final int[] digits, final int fromBase, final int toBase) {
+        checkBase(fromBase);
+        checkBase(toBase);
+        for (int digit : digits) {
+            if (digit < 0 || digit >= fromBase) {
+                throw new IllegalArgumentException("Not a base " + fromBase + " digit: " + digit);
+            }
+        }
+        int[] significant = DigitArithmetic.stripLeadingZeros(digits);
+        int[] result;
+        if (significant.length == 0) {
+            result = new int[1];
+        } else if (fromBase == toBase) {
+            result = significant.clone();
+        } else if (DigitArithmetic.powerOfTwoBits(fromBase) >= 0 && DigitArithmetic.powerOfTwoBits(toBase) >= 0) {
+            result = regroupBits(significant, fromBase, toBase);
+        } else {
+            result = divideAndConquer(significant, fromBase, toBase);
+        }
+        return result;
+    } // method convert
+
+    /** Throws IllegalArgumentException if base is outside 2..MAX_BASE */
+    private static void checkBase(final int base) {
+        if (base < 2 || base > MAX_BASE) {
+            throw new IllegalArgumentException("Base must be between 2 and " + MAX_BASE + ": " + base);
+        }
+    } // method checkBase
+
+    /**
+     * Converts between two power-of-two bases by reading the bits from the back
+     * and cutting them into groups of the new width.
+     */
+    private static int[] regroupBits(final int[] digits, final int fromBase, final int toBase) {
+        int fromBits = DigitArithmetic.powerOfTwoBits(fromBase);
+        int toBits = DigitArithmetic.powerOfTwoBits(toBase);
+        long totalBits = (long) digits.length * fromBits;
+        int[] result = new int[(int) ((totalBits + toBits - 1) / toBits)];
+        long pending = 0;
+        int pendingBits = 0;
+        int r = result.length - 1;
+        for (int d = digits.length - 1; d >= 0; d--) {
+            pending |= (long) digits[d] << pendingBits;
+            pendingBits += fromBits;
+            while (pendingBits >= toBits) {
+                result[r--] = (int) (pending & (toBase - 1));
+                pending >>>= toBits;
+                pendingBits -= toBits;
+            }
+        }
+        if (pendingBits > 0) {
+            result[r] = (int) pending;
+        }
+        return DigitArithmetic.stripLeadingZeros(result);
+    } // method regroupBits
+
+    /** Converts with the power table; digits has no leading zeros */
+    private static int[] divideAndConquer(final int[] digits, final int fromBase, final int toBase) {
+        // As many digits per chunk as fit in a long
+        int chunk = 1;
+        long chunkPower = fromBase;
+        while (chunkPower <= Long.MAX_VALUE / fromBase) {
+            chunkPower *= fromBase;
+            chunk++;
+        }
+        int levels = 0;
+        while ((long) chunk << levels < digits.length) {
+            levels++;
+        }
+        // powers[i] is fromBase^(chunk * 2^i) in toBase
+        int[][] powers = new int[Math.max(1, levels)][];
+        powers[0] = DigitArithmetic.fromLong(chunkPower, toBase);
+        for (int i = 1; i < levels; i++) {
+            powers[i] = DigitArithmetic.stripLeadingZeros(GradeSchoolMultiplication_Solution.square(powers[i - 1],
+                    toBase));
+        }
+        int[] result = convertBlock(digits, digits.length, levels, chunk, fromBase, toBase, powers);
+        return (result.length == 0) ? new int[1] : result;
+    } // method divideAndConquer
+
+    /**
+     * Converts the block of chunk * 2^level digits that ends just before index
+     * end. A block that starts before the front of the array is read as if it
+     * were padded with leading zeros.
+     *
+     * @return the block's value in toBase, without leading zeros
+     */
+    private static int[] convertBlock(final int[] digits, final int end, final int level, final int chunk,
+            final int fromBase, final int toBase, final int[][] powers) {
+        int[] result;
+        if (level == 0) {
+            long value = 0;
+            for (int d = Math.max(0, end - chunk); d < end; d++) {
+                value = value * fromBase + digits[d];
+            }
+            result = DigitArithmetic.fromLong(value, toBase);
+        } else {
+            int half = chunk << (level - 1);
+            int[] low = convertBlock(digits, end, level - 1, chunk, fromBase, toBase, powers);
+            int[] high = (end > half)
+                    ? convertBlock(digits, end - half, level - 1, chunk, fromBase, toBase, powers)
+                    : new int[0];
+            if (high.length == 0) {
+                result = low;
+            } else {
+                // high * fromBase^half + low; low is below that power, so it fits
+                int[] combined = GradeSchoolMultiplication_Solution.multiplyUntrimmed(high, powers[level - 1], toBase);
+                DigitArithmetic.addInto(combined, low, 0, toBase);
+                result = DigitArithmetic.stripLeadingZeros(combined);
+            }
+        }
+        return result;
+    } // method convertBlock
+
+    /** Demo: 2^100 in base 10, converted to base 2^16 and back */
+    public static void main(String[] args) {
+        int[] decimal = { 1, 2, 6, 7, 6, 5, 0, 6, 0, 0, 2, 2, 8, 2, 2, 9, 4, 0, 1, 4, 9, 6, 7, 0, 3, 2, 0, 5, 3, 7, 6 };
+        int[] hex16 = convert(decimal, 10, 1 << 16);
+        System.out.println(Arrays.toString(hex16));
+        System.out.println(Arrays.toString(convert(hex16, 1 << 16, 10)));
+    } // method main
+
+} // class RadixConversion
@@ -0,0 +1,74 @@
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * DigitStorage off the heap, in a MemorySegment with its own Arena. The garbage
+ * collector never scans or moves these digits, a storage can be longer than any
+ * array, and close() frees the memory at once.
+ *
+ * This class needs the Foreign Function and Memory API: JDK 22 or later, or
+ * JDK 21 with --enable-preview. Other code reaches it through OffHeapDigits,
+ * which does not name it, so the rest of the tree still compiles without it.
+ * The arena is shared, so any thread may read and write the digits, as long as
+ * no two threads write the same digits at once.
+ */
+public class SegmentDigits implements DigitStorage {
+
+    /** Ints are stored with their natural alignment */
+    private static final ValueLayout.OfInt DIGIT = ValueLayout.JAVA_INT;
+
+    /** Owns the memory; closing it frees the segment */
+    private final Arena arena;
+
+    /** The digits, most significant first */
+    private final MemorySegment segment;
+
+    /** Number of digits */
+    private final long length;
+
+    /**
+     * Allocates length digits off the heap, all 0.
+     *
+     * @param length the number of digits
+     */
+    public SegmentDigits(final long length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative length: " + length);
+        }
+        this.arena = Arena.ofShared();
+        this.segment = this.arena.allocate(length * DIGIT.byteSize(), DIGIT.byteAlignment());
+        this.length = length;
+    } // constructor
+
+    @Override
+    public long length() {
+        return this.length;
+    } // method length
+
+    @Override
+    public int get(final long index) {
+        return this.segment.getAtIndex(DIGIT, index);
+    } // method get
+
+    @Override
+    public void set(final long index, final int digit) {
+        this.segment.setAtIndex(DIGIT, index, digit);
+    } // method set
+
+    @Override
+    public void read(final long from, int[] dst, final int dstOffset, final int count) {
+        MemorySegment.copy(this.segment, DIGIT, from * DIGIT.byteSize(), dst, dstOffset, count);
+    } // method read
+
+    @Override
+    public void write(final int[] src, final int srcOffset, final long to, final int count) {
+        MemorySegment.copy(src, srcOffset, this.segment, DIGIT, to * DIGIT.byteSize(), count);
+    } // method write
+
+    @Override
+    public void close() {
+        this.arena.close();
+    } // method close
+
+} // class SegmentDigits
@@ -0,0 +1,136 @@
+import java.util.Arrays; // for toString() only
+
+/**
+ * A number kept as the positions and values of its nonzero digits only, for
+ * numbers that are mostly zeros, such as base^1000000 + 7. Such a number takes
+ * memory for its nonzero digits, not for its length, and multiplying two of
+ * them with SparseMultiplication costs one digit product per pair of nonzero
+ * digits.
+ *
+ * A SparseDigits does not change once it is built, so threads can share it.
+ */
+public class SparseDigits {
+
+    /** The number of digits, zeros included, as in the dense array */
+    private final int length;
+
+    /**
+     * Position and value of each nonzero digit, in pairs, most significant
+     * first. Positions count from the most significant digit, as indices into
+     * the dense array would.
+     */
+    private final int[] entries;
+
+    /** Number of nonzero digits */
+    private final int count;
+
+    /** Wraps entries gathered by SparseMultiplication.gather */
+    private SparseDigits(final int length, final int[] entries, final int count) {
+        this.length = length;
+        this.entries = entries;
+        this.count = count;
+    } // constructor
+
+    /**
+     * Builds the number sum of values[k] * base^exponents[k] with the given
+     * number of digits, without a dense array.
+     *
+     * @param length    the number of digits, leading zeros included
+     * @param exponents the exponent of each nonzero digit, in decreasing order
+     * @param values    the digits themselves, each from 1 to base - 1
+     * @return the number
+     * @throws IllegalArgumentException if the exponents are not in decreasing
+     *                                  order below length, or a value is 0
+     */
+    public static SparseDigits of(final int length, final int[] exponents, final int[] values) {
+        if (exponents.length != values.length) {
+            throw new IllegalArgumentException(
+                    exponents.length + " exponents but " + values.length + " values");
+        }
+        int[] entries = new int[2 * exponents.length];
+        for (int k = 0; k < exponents.length; k++) {
+            if (exponents[k] < 0 || exponents[k] >= length || k > 0 && exponents[k] >= exponents[k - 1]) {
+                throw new IllegalArgumentException("Exponents must decrease from below " + length + ": "
+                        + Arrays.toString(exponents));
+            }
+            if (values[k] == 0) {
+                throw new IllegalArgumentException("Digit for exponent " + exponents[k] + " is 0");
+            }
+            entries[2 * k] = length - 1 - exponents[k];
+            entries[2 * k + 1] = values[k];
+        }
+        return new SparseDigits(length, entries, exponents.length);
+    } // method of
+
+    /**
+     * Builds the sparse form of a digit array.
+     *
+     * @param digits the number, most significant digit first
+     * @return the number, with the same length as the array
+     */
+    public static SparseDigits of(final int[] digits) {
+        int nonzeros = 0;
+        for (int digit : digits) {
+            if (digit != 0) {
+                nonzeros++;
+            }
+        }
+        int[] entries = new int[2 * nonzeros];
+        SparseMultiplication.gather(digits, 0, digits.length, entries);
+        return new SparseDigits(digits.length, entries, nonzeros);
+    } // method of
+
+    /** Returns the number of digits, zeros included */
+    public int length() {
+        return this.length;
+    } // method length
+
+    /** Returns the number of nonzero digits */
+    public int nonzeros() {
+        return this.count;
+    } // method nonzeros
+
+    /** Returns the number as a digit array of length() digits */
+    public int[] toDigits() {
+        int[] result = new int[this.length];
+        for (int k = 0; k < 2 * this.count; k += 2) {
+            result[this.entries[k]] = this.entries[k + 1];
+        }
+        return result;
+    } // method toDigits
+
+    /**
+     * Multiplies this number by another with SparseMultiplication.
+     *
+     * @param other the other number to multiply
+     * @param base  the number base of both numbers
+     * @return the product as a digit array, with length() + other.length()
+     *         digits
+     */
+    public int[] multiply(final SparseDigits other, final int base) {
+        int[] product = new int[this.length + other.length];
+        SparseMultiplication.multiply(this.entries, this.count, other.entries, other.count, base, product, 0,
+                product.length);
+        return product;
+    } // method multiply
+
+    /** Demo: (10^n + 7) * (10^n + 3), sparse and dense */
+    public static void main(String[] args) {
+        int n = 1000000;
+        SparseDigits x = of(n + 1, new int[] { n, 0 }, new int[] { 1, 7 });
+        SparseDigits y = of(n + 1, new int[] { n, 0 }, new int[] { 1, 3 });
+        long start = System.nanoTime();
+        int[] product = DigitArithmetic.trimLeadingZero(x.multiply(y, 10));
+        double sparse = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        int[] dense = GradeSchoolMultiplication_Solution.multiply(x.toDigits(), y.toDigits(), 10);
+        double dispatched = (System.nanoTime() - start) / 1e6;
+        if (!Arrays.equals(product, dense)) {
+            throw new IllegalStateException("Sparse product differs");
+        }
+        // 10^2n + 10 * 10^n + 21
+        System.out.printf("%d digits: %d ... %d%d, %.1f ms sparse, %.1f ms through multiply%n", product.length,
+                product[0], product[product.length - 2], product[product.length - 1], sparse, dispatched);
+    } // method main
+
+} // class SparseDigits
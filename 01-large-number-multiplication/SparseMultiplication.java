@@ -0,0 +1,236 @@
+import java.util.Arrays; // for fill() only
+
+/**
+ * Multiplication that only touches the nonzero digits of its operands, for
+ * numbers that are mostly zeros, such as powers of the base plus small
+ * offsets.
+ *
+ * Every nonzero digit of x is multiplied by every nonzero digit of y, and the
+ * product is added into the result at column i + j + 1 with its carry. With kx
+ * and ky nonzero digits that is kx * ky digit products, whatever the lengths,
+ * where the dense methods do work for every digit, zero or not.
+ *
+ * GradeSchoolMultiplication_Solution switches to this method by itself when
+ * the operands are sparse enough: when kx * ky is at most cutoff times the
+ * length of the product. For two operands of n digits with densities dx and
+ * dy, that is dx * dy <= 2 * cutoff / n, so the longer the operands, the
+ * sparser they must be. Dense methods do more work per product digit as the
+ * operands grow, so the bound is on the safe side for long ones. Counting the
+ * nonzero digits stops as soon as the bound is exceeded, so dense operands pay
+ * for one pass over the shorter of them.
+ *
+ * A number can also be kept sparse with SparseDigits, which holds just the
+ * positions and values of its nonzero digits.
+ */
+public class SparseMultiplication {
+
+    // ------------------------------ CONSTANTS ---------------------------------
+
+    /** Digit products per product digit up to which sparse multiplication wins */
+    public static final int DEFAULT_CUTOFF = 4;
+
+    /** Current cutoff; see applies() */
+    private static volatile int cutoff = DEFAULT_CUTOFF;
+
+    /** Returns the current cutoff */
+    public static int getCutoff() {
+        return cutoff;
+    } // method getCutoff
+
+    /**
+     * Sets how many products of nonzero digits per digit of the product the
+     * dispatcher accepts before it stays with the dense methods. 0 turns the
+     * switch off for everything but zero operands.
+     *
+     * @param newCutoff the new cutoff, at least 0
+     */
+    public static void setCutoff(final int newCutoff) {
+        if (newCutoff < 0) {
+            throw new IllegalArgumentException("Sparse cutoff must be at least 0: " + newCutoff);
+        }
+        cutoff = newCutoff;
+    } // method setCutoff
+
+    /**
+     * Returns true if multiplying x and y digit by nonzero digit takes no more
+     * than cutoff digit products per digit of the product.
+     *
+     * @param x one of the two numbers to multiply
+     * @param y the other number to multiply
+     * @return true if the sparse method should do the product
+     */
+    public static boolean applies(final int[] x, final int[] y) {
+        return applies(x, 0, x.length, y, 0, y.length);
+    } // method applies
+
+    /**
+     * Range form of applies, for the xLength digits at xOffset and the yLength
+     * digits at yOffset.
+     *
+     * @param x       the array holding one of the numbers to multiply
+     * @param xOffset where that number starts in x
+     * @param xLength how many digits it has
+     * @param y       the array holding the other number to multiply
+     * @param yOffset where that number starts in y
+     * @param yLength how many digits it has
+     * @return true if the sparse method should do the product
+     */
+    public static boolean applies(final int[] x, final int xOffset, final int xLength, final int[] y,
+            final int yOffset, final int yLength) {
+        long budget = (long) cutoff * (xLength + yLength);
+        // Count the shorter operand first; for dense operands, the second count
+        // then stops after a few digits
+        boolean xFirst = xLength <= yLength;
+        long firstCount = xFirst ? countNonzeros(x, xOffset, xLength, budget)
+                : countNonzeros(y, yOffset, yLength, budget);
+        boolean result;
+        if (firstCount == 0) {
+            result = true;
+        } else if (firstCount > budget) {
+            result = false;
+        } else {
+            long limit = budget / firstCount;
+            long secondCount = xFirst ? countNonzeros(y, yOffset, yLength, limit)
+                    : countNonzeros(x, xOffset, xLength, limit);
+            result = secondCount <= limit;
+        }
+        return result;
+    } // method applies
+
+    /**
+     * Multiplies two integers represented as arrays of digits, skipping their
+     * zero digits. Like the other methods behind multiplyUntrimmed, the product
+     * has exactly x.length + y.length digits.
+     *
+     * @param x    one of the two numbers to multiply
+     * @param y    the other number to multiply
+     * @param base the number base of the system
+     * @return the product, with x.length + y.length digits
+     */
+    public static int[] multiply(final int[] x, final int[] y, final int base) {
+        int[] product = new int[x.length + y.length];
+        multiply(x, y, base, product, new MultiplicationWorkspace());
+        return product;
+    } // method multiply
+
+    /**
+     * Allocation-free form of multiply: writes the x.length + y.length digits of
+     * the product into the front of product. The positions and values of the
+     * nonzero digits are gathered in the workspace.
+     *
+     * @param x         one of the two numbers to multiply
+     * @param y         the other number to multiply
+     * @param base      the number base of the system
+     * @param product   the array to write the product into; may not overlap x or
+     *                  y
+     * @param workspace where the nonzero digits are gathered
+     */
+    public static void multiply(final int[] x, final int[] y, final int base, int[] product,
+            final MultiplicationWorkspace workspace) {
+        multiply(x, 0, x.length, y, 0, y.length, base, product, 0, workspace);
+    } // method multiply
+
+    /**
+     * Range form of multiply: multiplies the xLength digits at xOffset by the
+     * yLength digits at yOffset and writes all xLength + yLength digits of the
+     * product into product starting at productOffset.
+     *
+     * @param x             the array holding one of the numbers to multiply
+     * @param xOffset       where that number starts in x
+     * @param xLength       how many digits it has
+     * @param y             the array holding the other number to multiply
+     * @param yOffset       where that number starts in y
+     * @param yLength       how many digits it has
+     * @param base          the number base of the system
+     * @param product       the array to write the product into; may not overlap
+     *                      x or y
+     * @param productOffset where the product starts in its array
+     * @param workspace     where the nonzero digits are gathered
+     */
+    public static void multiply(final int[] x, final int xOffset, final int xLength, final int[] y,
+            final int yOffset, final int yLength, final int base, int[] product, final int productOffset,
+            final MultiplicationWorkspace workspace) {
+        int[] xEntries = workspace.buffer(MultiplicationWorkspace.SPARSE_X, 2 * xLength);
+        int xCount = gather(x, xOffset, xLength, xEntries);
+        int yCount = xCount;
+        int[] yEntries = xEntries;
+        if (x != y || xOffset != yOffset || xLength != yLength) {
+            yEntries = workspace.buffer(MultiplicationWorkspace.SPARSE_Y, 2 * yLength);
+            yCount = gather(y, yOffset, yLength, yEntries);
+        }
+        multiply(xEntries, xCount, yEntries, yCount, base, product, productOffset, xLength + yLength);
+    } // method multiply
+
+    /**
+     * The kernel: adds the product of every pair of nonzero digits into its
+     * column and carries right away, so no column ever overflows.
+     *
+     * @param xEntries      position and value of each nonzero digit of x, in
+     *                      pairs; positions count from the most significant
+     *                      digit
+     * @param xCount        how many pairs xEntries holds
+     * @param yEntries      the same for y
+     * @param yCount        how many pairs yEntries holds
+     * @param base          the number base of the system
+     * @param product       the array to write the product into
+     * @param productOffset where the product starts in its array
+     * @param productLength the length of x plus the length of y
+     */
+    static void multiply(final int[] xEntries, final int xCount, final int[] yEntries, final int yCount,
+            final int base, int[] product, final int productOffset, final int productLength) {
+        Arrays.fill(product, productOffset, productOffset + productLength, 0);
+        // For a power-of-two base, masks and shifts do
+        int bits = DigitArithmetic.powerOfTwoBits(base);
+        long mask = base - 1L;
+        for (int a = 0; a < 2 * xCount; a += 2) {
+            int xPosition = productOffset + xEntries[a] + 1;
+            long xValue = xEntries[a + 1];
+            for (int b = 0; b < 2 * yCount; b += 2) {
+                long carry = xValue * yEntries[b + 1];
+                int d = xPosition + yEntries[b];
+                while (carry != 0) {
+                    long column = product[d] + carry;
+                    if (bits >= 0) {
+                        product[d] = (int) (column & mask);
+                        carry = column >>> bits;
+                    } else {
+                        product[d] = (int) (column % base);
+                        carry = column / base;
+                    }
+                    d--;
+                }
+            }
+        }
+    } // method multiply
+
+    /**
+     * Writes the position and value of each nonzero digit of the length digits
+     * at offset into entries, in pairs, most significant first. Positions count
+     * from offset.
+     *
+     * @return the number of nonzero digits
+     */
+    static int gather(final int[] digits, final int offset, final int length, int[] entries) {
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (digits[offset + i] != 0) {
+                entries[2 * count] = i;
+                entries[2 * count + 1] = digits[offset + i];
+                count++;
+            }
+        }
+        return count;
+    } // method gather
+
+    /** Counts the nonzero digits of the length digits at offset, but stops at limit + 1 */
+    private static long countNonzeros(final int[] digits, final int offset, final int length, final long limit) {
+        long count = 0;
+        for (int i = offset; i < offset + length && count <= limit; i++) {
+            if (digits[i] != 0) {
+                count++;
+            }
+        }
+        return count;
+    } // method countNonzeros
+
+} // class SparseMultiplication
@@ -0,0 +1,190 @@
+import java.util.Arrays; // for fill() only
+
+/**
+ * Addition and multiplication of numbers held in any DigitStorage, so that the
+ * operands and the result can be off the heap, in files, or longer than an
+ * array.
+ *
+ * Neither kernel needs the whole number in an array. Both work from the least
+ * significant end, one block at a time, with a carry between blocks. Addition
+ * copies matching blocks of the two numbers into arrays, adds them with
+ * DigitArithmetic and writes the sum block back.
+ *
+ * Multiplication cuts both operands into blocks of B digits, so that x = sum of
+ * x_i * base^(iB) and likewise for y. The product is then the sum of
+ * x_i * y_j * base^((i + j)B), and block k of the product only depends on the
+ * pairs with i + j = k plus the carry from block k - 1. So for each k we
+ * multiply those pairs with the array kernels of
+ * GradeSchoolMultiplication_Solution, add them into an accumulator, write its
+ * low B digits out and shift the rest down as the carry. Only two operand
+ * blocks, one block product, the accumulator and the kernels' workspace are on
+ * the heap at any time. B is chosen as large as a memory budget allows, because
+ * longer blocks let the fast kernels do more of the work.
+ */
+public class StorageArithmetic {
+
+    // ------------------------------ CONSTANTS ---------------------------------
+
+    /** Digits per block of an addition */
+    private static final int ADD_BLOCK = 1 << 16;
+
+    /**
+     * Extra accumulator digits above the 2B of a block product. The accumulator
+     * adds fewer than 2^31 block products, so 32 digits cover even base 2.
+     */
+    private static final int CARRY_DIGITS = 32;
+
+    /** Longest block: the block product of 2B digits must fit in an array */
+    private static final int MAX_BLOCK = 1 << 29;
+
+    /**
+     * Adds a and b into sum, which must be max(a.length(), b.length()) + 1 digits
+     * long, the same length DigitArithmetic.add returns.
+     *
+     * @param a    one of the two numbers to add
+     * @param b    the other number to add
+     * @param sum  receives a + b, possibly with a leading 0
+     * @param base the number base of the system
+     */
+    public static void add(final DigitStorage a, final DigitStorage b, DigitStorage sum, final int base) {
+        long sumLength = Math.max(a.length(), b.length()) + 1;
+        if (sum.length() != sumLength) {
+            throw new IllegalArgumentException("Sum must have " + sumLength + " digits: " + sum.length());
+        }
+        int[] aBlock = new int[ADD_BLOCK];
+        int[] bBlock = new int[ADD_BLOCK];
+        int[] sumBlock = new int[ADD_BLOCK + 1];
+        int[] carry = new int[1];
+        for (long k = 0; k * ADD_BLOCK < sumLength; k++) {
+            readBlock(a, k, aBlock);
+            readBlock(b, k, bBlock);
+            DigitArithmetic.add(aBlock, 0, ADD_BLOCK, bBlock, 0, ADD_BLOCK, base, sumBlock, 0);
+            DigitArithmetic.addInto(sumBlock, carry, 0, base);
+            carry[0] = sumBlock[0];
+            writeBlock(sum, k, sumBlock, ADD_BLOCK);
+        }
+    } // method add
+
+    /**
+     * Multiplies x and y into product, which must be exactly x.length() +
+     * y.length() digits long. Like multiplyUntrimmed, the product keeps its
+     * leading zeros.
+     *
+     * @param x            one of the two numbers to multiply
+     * @param y            the other number to multiply
+     * @param product      receives the product; may not be x or y
+     * @param base         the number base of the system
+     * @param memoryBudget the most heap, in bytes, to use for blocks, the
+     *                     accumulator and the kernels' workspace
+     * @throws IllegalArgumentException if the product has the wrong length or the
+     *                                  budget is too small for even one digit per
+     *                                  block
+     */
+    public static void multiply(final DigitStorage x, final DigitStorage y, DigitStorage product, final int base,
+            final long memoryBudget) {
+        long total = x.length() + y.length();
+        if (product.length() != total) {
+            throw new IllegalArgumentException("Product must have " + total + " digits: " + product.length());
+        }
+        if (total > 0) {
+            int block = blockLength(Math.max(x.length(), y.length()), base, memoryBudget);
+            multiplyBlocks(x, y, product, block, base);
+        }
+    } // method multiply
+
+    /**
+     * Returns the longest block whose buffers and workspace fit the budget, but
+     * no longer than the longer operand.
+     */
+    static int blockLength(final long longer, final int base, final long memoryBudget) {
+        if (bytesFor(1, base) > memoryBudget) {
+            throw new IllegalArgumentException("Memory budget of " + memoryBudget + " bytes is too small");
+        }
+        // bytesFor grows with the block length, so bisect for the largest fit
+        int low = 1;
+        int high = (int) Math.min(MAX_BLOCK, Math.max(1, longer));
+        while (low < high) {
+            int middle = low + (high - low + 1) / 2;
+            if (bytesFor(middle, base) <= memoryBudget) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    } // method blockLength
+
+    /**
+     * Heap bytes for blocks of b digits: the two operand blocks, their product,
+     * the accumulator and the workspace.
+     */
+    private static long bytesFor(final int b, final int base) {
+        long ints = b + b + 2L * b + (2L * b + CARRY_DIGITS);
+        return Integer.BYTES * (ints + MultiplicationWorkspace.footprint(b, b, base));
+    } // method bytesFor
+
+    /** Produces the product block by block, from the least significant end */
+    private static void multiplyBlocks(final DigitStorage x, final DigitStorage y, DigitStorage product,
+            final int block, final int base) {
+        long xBlocks = (x.length() + block - 1) / block;
+        long yBlocks = (y.length() + block - 1) / block;
+        long productBlocks = (product.length() + block - 1) / block;
+        int[] xBlock = new int[block];
+        int[] yBlock = new int[block];
+        int[] blockProduct = new int[2 * block];
+        // The sum of the block products for the current k, plus the carry; its
+        // last block digits are the next block of the product
+        int[] accumulator = new int[2 * block + CARRY_DIGITS];
+        MultiplicationWorkspace workspace = new MultiplicationWorkspace(block, base);
+        for (long k = 0; k < productBlocks; k++) {
+            for (long i = Math.max(0, k - yBlocks + 1); i <= Math.min(k, xBlocks - 1); i++) {
+                readBlock(x, i, xBlock);
+                readBlock(y, k - i, yBlock);
+                GradeSchoolMultiplication_Solution.multiplyInto(xBlock, yBlock, base, blockProduct, workspace);
+                DigitArithmetic.addInto(accumulator, blockProduct, 0, base);
+            }
+            writeBlock(product, k, accumulator, block);
+            System.arraycopy(accumulator, 0, accumulator, block, accumulator.length - block);
+            Arrays.fill(accumulator, 0, block, 0);
+        }
+    } // method multiplyBlocks
+
+    /**
+     * Copies block i of the storage, the out.length digits that end i blocks
+     * before its last digit, into out. Digits before the front are 0.
+     */
+    private static void readBlock(final DigitStorage storage, final long i, int[] out) {
+        long end = storage.length() - i * out.length;
+        long start = Math.max(0, end - out.length);
+        int padding = (int) (out.length - Math.max(0, end - start));
+        Arrays.fill(out, 0, padding, 0);
+        if (end > start) {
+            storage.read(start, out, padding, (int) (end - start));
+        }
+    } // method readBlock
+
+    /**
+     * Writes the last block digits of src as block k of the storage; only the
+     * most significant block can be short.
+     */
+    private static void writeBlock(DigitStorage storage, final long k, final int[] src, final int block) {
+        long end = storage.length() - k * block;
+        int count = (int) Math.min(block, end);
+        storage.write(src, src.length - count, end - count, count);
+    } // method writeBlock
+
+    /** Demo: the square of a 100000-digit number, on and off the heap */
+    public static void main(String[] args) {
+        int[] digits = new int[100000];
+        Arrays.fill(digits, 9);
+        try (DigitStorage x = OffHeapDigits.allocateOrArray(digits.length);
+                DigitStorage square = OffHeapDigits.allocateOrArray(2L * digits.length)) {
+            x.write(digits, 0, 0, digits.length);
+            multiply(x, x, square, 10, 1 << 20);
+            // (10^n - 1)^2 = 99...9800...01
+            System.out.printf("%s: %d%d ... %d%d%n", x.getClass().getName(), square.get(0), square.get(1),
+                    square.get(square.length() - 2), square.get(square.length() - 1));
+        }
+    } // method main
+
+} // class StorageArithmetic
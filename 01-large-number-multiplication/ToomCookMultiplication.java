@@ -0,0 +1,207 @@
+import java.util.Arrays; // for copyOfRange() only
+
+/**
+ * Toom-Cook 3-way multiplication for integers represented as arrays of single
+ * digits.
+ *
+ * Each operand is split into three parts and read as a polynomial in B^k, where
+ * B is the base: x = x2 * B^2k + x1 * B^k + x0, and the same for y. The
+ * product polynomial has five coefficients, so we evaluate both polynomials at
+ * five points (0, 1, -1, -2 and infinity), multiply the values pairwise, and
+ * interpolate the coefficients back. Five products of one third the size gives
+ * O(n^1.465) digit operations, which pays off over Karatsuba once operands reach
+ * a few hundred digits.
+ *
+ * The values at -1 and -2 can be negative, so this class carries a sign next to
+ * each digit array. The interpolation needs exact divisions by 2 and 3, which
+ * are plain long divisions and work in any base.
+ */
+public class ToomCookMultiplication {
+
+    /** Operand length below which Karatsuba is faster */
+    public static final int DEFAULT_CUTOFF = 600;
+
+    /** Current cutoff; the shorter operand must be at least this long */
+    private static volatile int cutoff = DEFAULT_CUTOFF;
+
+    /** Returns the current Toom-3 cutoff */
+    public static int getCutoff() {
+        return cutoff;
+    } // method getCutoff
+
+    /**
+     * Sets the operand length from which the dispatcher picks Toom-3. The values
+     * at the five points are up to one digit longer than the parts, so the
+     * recursion only gets shorter once the parts have two digits.
+     *
+     * @param newCutoff the new cutoff, at least 6
+     */
+    public static void setCutoff(final int newCutoff) {
+        if (newCutoff < 6) {
+            throw new IllegalArgumentException("Toom-3 cutoff must be at least 6: " + newCutoff);
+        }
+        cutoff = newCutoff;
+    } // method setCutoff
+
+    /**
+     * A digit array with a sign. Only the evaluation and interpolation steps need
+     * negative numbers; the coefficients that come out at the end are never
+     * negative.
+     */
+    private static class Signed {
+        final boolean negative;
+        final int[] magnitude;
+
+        Signed(final boolean negative, final int[] magnitude) {
+            this.negative = negative;
+            this.magnitude = magnitude;
+        } // constructor
+    } // class Signed
+
+    /**
+     * Multiplies two integers represented as arrays of digits. Like Karatsuba, the
+     * product is not trimmed and has exactly x.length + y.length digits. The five
+     * pointwise products go back through the dispatcher in
+     * GradeSchoolMultiplication_Solution, so they use Toom-3, Karatsuba or the
+     * grade-school loop depending on their size.
+     *
+     * @param x    one of the two numbers to multiply
+     * @param y    the other number to multiply
+     * @param base the number base of the system
+     * @return the product, with x.length + y.length digits
+     */
+    public static int[] multiply(final int[] x, final int[] y, final int base) {
+        int[] product;
+        int shorter = Math.min(x.length, y.length);
+        int longer = Math.max(x.length, y.length);
+        if (shorter < 6) {
+            product = GradeSchoolMultiplication_Solution.multiplyUntrimmed(x, y, base);
+        } else if (2 * shorter <= longer) {
+            product = multiplyUnbalanced(x, y, base);
+        } else {
+            // Split both operands into parts of k digits; the top parts get the rest
+            int k = (longer + 2) / 3;
+            int[][] xParts = split(x, k);
+            // Evaluate both polynomials and multiply the values point by point. For a
+            // square the values are the same, and the dispatcher squares them.
+            Signed[] xValues = evaluate(xParts, base);
+            Signed[] yValues = (x == y) ? xValues : evaluate(split(y, k), base);
+            Signed[] r = new Signed[xValues.length];
+            for (int point = 0; point < r.length; point++) {
+                r[point] = new Signed(xValues[point].negative != yValues[point].negative,
+                        GradeSchoolMultiplication_Solution.multiplyUntrimmed(
+                                xValues[point].magnitude, yValues[point].magnitude, base));
+            }
+            // Interpolate (Bodrato's sequence): r[0..4] become the coefficients
+            r[3] = divide(minus(r[3], r[1], base), 3, base);
+            r[1] = divide(minus(r[1], r[2], base), 2, base);
+            r[2] = minus(r[2], r[0], base);
+            r[3] = plus(divide(minus(r[2], r[3], base), 2, base),
+                    new Signed(false, DigitArithmetic.multiplySmall(r[4].magnitude, 2, base)), base);
+            r[2] = minus(plus(r[2], r[1], base), r[4], base);
+            r[1] = minus(r[1], r[3], base);
+            // Put the coefficients together at their powers of B^k
+            product = new int[x.length + y.length];
+            for (int power = 0; power < r.length; power++) {
+                DigitArithmetic.addInto(product, r[power].magnitude, power * k, base);
+            }
+        }
+        return product;
+    } // method multiply
+
+    /**
+     * Splits a number into its low, middle and high parts of k digits each. The
+     * high part holds whatever is left and may be shorter, or even empty.
+     *
+     * @param a the number to split
+     * @param k the length of the low and middle parts
+     * @return the parts, low part first
+     */
+    private static int[][] split(final int[] a, final int k) {
+        int[][] parts = new int[3][];
+        int end = a.length;
+        for (int part = 0; part < parts.length; part++) {
+            int start = (part == parts.length - 1) ? 0 : Math.max(0, end - k);
+            parts[part] = Arrays.copyOfRange(a, start, end);
+            end = start;
+        }
+        return parts;
+    } // method split
+
+    /**
+     * Evaluates the polynomial a2 * t^2 + a1 * t + a0 at t = 0, 1, -1, -2 and
+     * infinity, where the value at infinity is the leading coefficient a2.
+     *
+     * @param parts the coefficients a0, a1, a2
+     * @param base  the number base of the system
+     * @return the five values, in the order listed above
+     */
+    private static Signed[] evaluate(final int[][] parts, final int base) {
+        Signed a0 = new Signed(false, parts[0]);
+        Signed a1 = new Signed(false, parts[1]);
+        Signed a2 = new Signed(false, parts[2]);
+        Signed evenSum = plus(a0, a2, base);
+        Signed atMinusOne = minus(evenSum, a1, base);
+        // p(-2) = 2 * (p(-1) + a2) - a0 saves one multiplication by 4
+        Signed twice = plus(atMinusOne, a2, base);
+        twice = new Signed(twice.negative, DigitArithmetic.multiplySmall(twice.magnitude, 2, base));
+        Signed[] values = { a0, plus(evenSum, a1, base), atMinusOne, minus(twice, a0, base), a2 };
+        // Drop the leading zeros that the additions left, so the products stay short
+        for (int point = 0; point < values.length; point++) {
+            values[point] = new Signed(values[point].negative,
+                    DigitArithmetic.stripLeadingZeros(values[point].magnitude));
+        }
+        return values;
+    } // method evaluate
+
+    /** Adds two signed numbers */
+    private static Signed plus(final Signed a, final Signed b, final int base) {
+        Signed sum;
+        if (a.negative == b.negative) {
+            sum = new Signed(a.negative, DigitArithmetic.add(a.magnitude, b.magnitude, base));
+        } else if (DigitArithmetic.compare(a.magnitude, b.magnitude) >= 0) {
+            sum = new Signed(a.negative, DigitArithmetic.subtract(a.magnitude, b.magnitude, base));
+        } else {
+            sum = new Signed(b.negative, DigitArithmetic.subtract(b.magnitude, a.magnitude, base));
+        }
+        return sum;
+    } // method plus
+
+    /** Subtracts b from a, both signed */
+    private static Signed minus(final Signed a, final Signed b, final int base) {
+        return plus(a, new Signed(!b.negative, b.magnitude), base);
+    } // method minus
+
+    /** Divides a signed number by a small divisor that is known to divide it */
+    private static Signed divide(final Signed a, final int divisor, final int base) {
+        return new Signed(a.negative, DigitArithmetic.divideSmall(a.magnitude, divisor, base));
+    } // method divide
+
+    /**
+     * Multiplies operands of very different lengths slice by slice, with the
+     * same loop as KaratsubaMultiplication. The slice products go back through
+     * the dispatcher.
+     *
+     * @param x    one of the two numbers to multiply
+     * @param y    the other number to multiply
+     * @param base the number base of the system
+     * @return the product, with x.length + y.length digits
+     */
+    private static int[] multiplyUnbalanced(final int[] x, final int[] y, final int base) {
+        int[] product = new int[x.length + y.length];
+        int[] sliceProduct = new int[2 * Math.min(x.length, y.length)];
+        GradeSchoolMultiplication_Solution.multiplyInSlices(x, 0, x.length, y, 0, y.length, base, product, 0,
+                sliceProduct, 0, getCutoff(), ToomCookMultiplication::multiplySlice);
+        return product;
+    } // method multiplyUnbalanced
+
+    /** One slice product for multiplyUnbalanced; it needs no scratch */
+    private static void multiplySlice(final int[] x, final int xOffset, final int xLength, final int[] y,
+            final int yOffset, final int yLength, final int base, int[] product, final int productOffset,
+            int[] scratch, final int scratchOffset, final int limit) {
+        int[] slice = GradeSchoolMultiplication_Solution.multiplyUntrimmed(new DigitSpan(x, xOffset, xLength),
+                new DigitSpan(y, yOffset, yLength), base);
+        System.arraycopy(slice, 0, product, productOffset, slice.length);
+    } // method multiplySlice
+
+} // class ToomCookMultiplication
@@ -0,0 +1,82 @@
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Runtime switch between the scalar column-wise kernel and the Vector API one
+ * in VectorizedMultiplication.
+ *
+ * The Vector API still lives in an incubator module that is only there when the
+ * JVM is started with --add-modules jdk.incubator.vector. So this class never
+ * names VectorizedMultiplication in its code: at startup it checks whether the
+ * module is in the boot layer and, if so, looks the kernel up by name. When
+ * the module or the class is missing, isAvailable() is false and
+ * GradeSchoolMultiplication_Solution keeps using its scalar loop.
+ */
+public class VectorKernel {
+
+    /** The vectorized columnWise, or null when it cannot be loaded */
+    private static final MethodHandle KERNEL = load();
+
+    /** Whether columnWise should use the vectorized kernel when it can */
+    private static volatile boolean enabled = KERNEL != null;
+
+    /** Looks up VectorizedMultiplication.columnWise if its module is present */
+    private static MethodHandle load() {
+        MethodHandle kernel = null;
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                MethodType type = MethodType.methodType(void.class, int[].class, int.class, int.class, int[].class,
+                        int.class, int.class, int.class, int[].class, int.class);
+                kernel = MethodHandles.lookup().findStatic(Class.forName("VectorizedMultiplication"), "columnWise",
+                        type);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Not compiled with the module: stay with the scalar kernel
+                kernel = null;
+            }
+        }
+        return kernel;
+    } // method load
+
+    /** Returns true if the vectorized kernel was loaded */
+    public static boolean isAvailable() {
+        return KERNEL != null;
+    } // method isAvailable
+
+    /** Returns true if columnWise currently uses the vectorized kernel */
+    public static boolean isEnabled() {
+        return enabled;
+    } // method isEnabled
+
+    /**
+     * Turns the vectorized kernel on or off, e.g., to compare it with the scalar
+     * one. It cannot be turned on when it is not available.
+     *
+     * @param enable true to use the vectorized kernel
+     */
+    public static void setEnabled(final boolean enable) {
+        if (enable && !isAvailable()) {
+            throw new IllegalStateException(
+                    "Vector API kernel not available; run with --add-modules jdk.incubator.vector");
+        }
+        enabled = enable;
+    } // method setEnabled
+
+    /**
+     * Calls the vectorized kernel; same contract as the range form of
+     * GradeSchoolMultiplication_Solution.columnWise. Only call it while
+     * isEnabled() is true.
+     */
+    static void columnWise(final int[] x, final int xOffset, final int xLength, final int[] y, final int yOffset,
+            final int yLength, final int base, int[] result, final int resultOffset) {
+        try {
+            KERNEL.invokeExact(x, xOffset, xLength, y, yOffset, yLength, base, result, resultOffset);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // columnWise declares no checked exceptions
+            throw new IllegalStateException(e);
+        }
+    } // method columnWise
+
+} // class VectorKernel
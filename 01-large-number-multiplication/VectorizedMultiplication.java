@@ -0,0 +1,97 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The column-wise grade-school kernel written with the Java Vector API, so the
+ * digit products of a column are multiplied and added several lanes at a time.
+ *
+ * Column k of the product is the sum of x[i] * y[j] over all digit pairs with
+ * i + j fixed. Counted from the back of the arrays, one index of the pair goes
+ * up while the other goes down. We load a block of x, reverse its lanes, and
+ * line it up with a block of y, so each block is a plain lane-by-lane
+ * multiply-add. The digits are widened from int to long lanes before they are
+ * multiplied, exactly like the scalar kernel does, so both produce the same
+ * result digit for digit.
+ *
+ * This class needs the incubating jdk.incubator.vector module, both to compile
+ * and to run:
+ *
+ * javac --add-modules jdk.incubator.vector *.java
+ * java --add-modules jdk.incubator.vector ...
+ *
+ * Nothing else in this folder refers to it directly. VectorKernel loads it at
+ * runtime when the module is present and falls back to the scalar kernel when
+ * it is not.
+ */
+public class VectorizedMultiplication {
+
+    /** As many long lanes as the hardware prefers */
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+    /** Int lanes of half the width, so there is one int lane per long lane */
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class,
+            VectorShape.forBitSize(LONGS.vectorBitSize() / 2));
+
+    /** Reverses the lanes of an int vector */
+    private static final VectorShuffle<Integer> REVERSE = INTS.iotaShuffle(INTS.length() - 1, -1, true);
+
+    /**
+     * Same contract as the range form of
+     * GradeSchoolMultiplication_Solution.columnWise; the caller has checked that
+     * every column fits in a long.
+     *
+     * @param x            the array holding one of the numbers to multiply
+     * @param xOffset      where that number starts in x
+     * @param xLength      how many digits it has
+     * @param y            the array holding the other number to multiply
+     * @param yOffset      where that number starts in y
+     * @param yLength      how many digits it has
+     * @param base         the number base of the system
+     * @param result       the array to write the product into
+     * @param resultOffset where the product starts in result
+     */
+    public static void columnWise(final int[] x, final int xOffset, final int xLength, final int[] y,
+            final int yOffset, final int yLength, final int base, int[] result, final int resultOffset) {
+        int resultLength = xLength + yLength;
+        int lanes = INTS.length();
+        int bits = DigitArithmetic.powerOfTwoBits(base);
+        int xLast = xOffset + xLength - 1;
+        int yLast = yOffset + yLength - 1;
+        int resultLast = resultOffset + resultLength - 1;
+        long carry = 0;
+        for (int column = 0; column < resultLength - 1; column++) {
+            int first = Math.max(0, column - (yLength - 1));
+            int last = Math.min(column, xLength - 1);
+            // Digit i of x, counted from the back, pairs with y[yLast - column + i]
+            int yStart = yLast - column;
+            LongVector lanesSum = LongVector.zero(LONGS);
+            int i = first;
+            for (; i + lanes - 1 <= last; i += lanes) {
+                // x[xLast - i - lanes + 1 .. xLast - i], reversed so lane 0 is digit i
+                IntVector xDigits = IntVector.fromArray(INTS, x, xLast - i - lanes + 1).rearrange(REVERSE);
+                IntVector yDigits = IntVector.fromArray(INTS, y, yStart + i);
+                LongVector xWide = (LongVector) xDigits.convertShape(VectorOperators.I2L, LONGS, 0);
+                LongVector yWide = (LongVector) yDigits.convertShape(VectorOperators.I2L, LONGS, 0);
+                lanesSum = lanesSum.add(xWide.mul(yWide));
+            }
+            long sum = carry + lanesSum.reduceLanes(VectorOperators.ADD);
+            // The pairs left over after the last full block
+            for (; i <= last; i++) {
+                sum += (long) x[xLast - i] * y[yStart + i];
+            }
+            if (bits >= 0) {
+                result[resultLast - column] = (int) (sum & (base - 1));
+                carry = sum >>> bits;
+            } else {
+                result[resultLast - column] = (int) (sum % base);
+                carry = sum / base;
+            }
+        }
+        result[resultOffset] = (int) carry;
+    } // method columnWise
+
+} // class VectorizedMultiplication
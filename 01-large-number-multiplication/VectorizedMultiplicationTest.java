@@ -0,0 +1,103 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the Vector API kernel writes exactly the same digits as the
+ * scalar one. Run it with --add-modules jdk.incubator.vector; without the
+ * module the tests are skipped.
+ */
+public class VectorizedMultiplicationTest {
+   private static final int[] BASES = { 2, 10, 16, 1000, 65536, 1000000000 };
+
+   private final Random random = new Random(2024);
+
+   @Before
+   public void requireVectorKernel() {
+      assumeTrue(VectorKernel.isAvailable());
+   }
+
+   @After
+   public void restoreVectorKernel() {
+      VectorKernel.setEnabled(VectorKernel.isAvailable());
+   }
+
+   /** Multiplies with the scalar and the vector kernel and compares every int */
+   private void assertSameProduct(int[] x, int xOffset, int xLength, int[] y, int yOffset, int yLength, int base) {
+      // One spare int at each end to catch writes outside the range
+      int[] scalar = new int[xLength + yLength + 2];
+      int[] vector = new int[xLength + yLength + 2];
+      VectorKernel.setEnabled(false);
+      GradeSchoolMultiplication_Solution.columnWise(x, xOffset, xLength, y, yOffset, yLength, base, scalar, 1);
+      VectorKernel.setEnabled(true);
+      GradeSchoolMultiplication_Solution.columnWise(x, xOffset, xLength, y, yOffset, yLength, base, vector, 1);
+      assertArrayEquals("base " + base + ", " + xLength + " x " + yLength + " digits", scalar, vector);
+   }
+
+   private int[] randomDigits(int length, int base) {
+      int[] digits = new int[length];
+      for (int i = 0; i < length; i++) {
+         digits[i] = random.nextInt(base);
+      }
+      return digits;
+   }
+
+   @Test
+   public void testRandomOperands() {
+      for (int round = 0; round < 2000; round++) {
+         int base = BASES[random.nextInt(BASES.length)];
+         int xLength = 1 + random.nextInt(80);
+         int yLength = 1 + random.nextInt(80);
+         assertSameProduct(randomDigits(xLength, base), 0, xLength, randomDigits(yLength, base), 0, yLength, base);
+      }
+   }
+
+   @Test
+   public void testLargestDigits() {
+      // All digits base - 1 give the largest column sums and carries
+      for (int base : BASES) {
+         for (int length = 1; length <= 40; length++) {
+            int[] x = new int[length];
+            int[] y = new int[length + 7];
+            Arrays.fill(x, base - 1);
+            Arrays.fill(y, base - 1);
+            assertSameProduct(x, 0, x.length, y, 0, y.length, base);
+            assertSameProduct(y, 0, y.length, x, 0, x.length, base);
+         }
+      }
+   }
+
+   @Test
+   public void testOffsets() {
+      for (int round = 0; round < 500; round++) {
+         int base = BASES[random.nextInt(BASES.length)];
+         int[] x = randomDigits(100, base);
+         int[] y = randomDigits(100, base);
+         int xOffset = random.nextInt(50);
+         int yOffset = random.nextInt(50);
+         int xLength = 1 + random.nextInt(50);
+         int yLength = 1 + random.nextInt(50);
+         assertSameProduct(x, xOffset, xLength, y, yOffset, yLength, base);
+      }
+   }
+
+   @Test
+   public void testMultiplyMatchesScalar() {
+      // The whole dispatcher, so the vector kernel also runs as Karatsuba's base case
+      for (int length : new int[] { 1, 5, 47, 48, 100, 300 }) {
+         int[] x = randomDigits(length, 10);
+         int[] y = randomDigits(length + 3, 10);
+         VectorKernel.setEnabled(false);
+         int[] scalar = GradeSchoolMultiplication_Solution.multiply(x, y, 10);
+         VectorKernel.setEnabled(true);
+         assertArrayEquals(scalar, GradeSchoolMultiplication_Solution.multiply(x, y, 10));
+      }
+   }
+
+}